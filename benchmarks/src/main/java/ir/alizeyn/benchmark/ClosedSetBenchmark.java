@@ -0,0 +1,143 @@
+package ir.alizeyn.benchmark;
+
+import ir.alizeyn.LongHashSet;
+import ir.alizeyn.LongIntHashMap;
+import ir.alizeyn.PuzzleGeometry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed set operations on packed 15puzzle boards: filling an empty set and
+ * looking keys up in a full one, half of them present. The boxed HashSet the
+ * engines used before is the baseline. Scores are per key.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class ClosedSetBenchmark {
+
+    private static final int KEYS = 1 << 16;
+
+    /**
+     * Number of boards already in the set, which decides whether the table
+     * fits the caches.
+     */
+    @Param({"65536", "4194304"})
+    public int size;
+
+    private long[] inserted;
+    private long[] probes;
+    private LongHashSet set;
+    private LongIntHashMap map;
+    private HashSet<Long> boxed;
+
+    @Setup
+    public void setUp() {
+        long[] keys = walk(size + KEYS);
+        inserted = new long[size];
+        set = new LongHashSet(size);
+        map = new LongIntHashMap(size);
+        boxed = new HashSet<Long>(size * 2);
+        for (int i = 0; i < size; i++) {
+            inserted[i] = keys[i];
+            set.add(inserted[i]);
+            map.put(inserted[i], i);
+            boxed.add(inserted[i]);
+        }
+        probes = new long[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            probes[i] = i % 2 == 0 ? inserted[(int) ((long) i * size / KEYS)] : keys[size + i];
+        }
+    }
+
+    /*
+     * The boards met on a random walk from a scrambled board, close to the
+     * neighbourhoods a search fills its closed set with.
+     */
+    private static long[] walk(int count) {
+        PuzzleGeometry geometry = PuzzleGeometry.forWidth(4);
+        Random random = new Random(5);
+        long board = geometry.pack(Instances.randomWalks(4, 1, 400, 5)[0])[0];
+        int hole = geometry.holeOf(board);
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int[] moves = geometry.getMoves(hole);
+            int from = moves[random.nextInt(moves.length)];
+            board = geometry.slide(board, hole, from);
+            hole = from;
+            keys[i] = board;
+        }
+        return keys;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int longHashSetInsert() {
+        LongHashSet fresh = new LongHashSet();
+        for (long key : probes) {
+            fresh.add(key);
+        }
+        return fresh.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int longHashSetLookup() {
+        int hits = 0;
+        for (long key : probes) {
+            if (set.contains(key)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int longIntHashMapLookup() {
+        int sum = 0;
+        for (long key : probes) {
+            sum += map.get(key, 0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int boxedHashSetInsert() {
+        HashSet<Long> fresh = new HashSet<Long>();
+        for (long key : probes) {
+            fresh.add(key);
+        }
+        return fresh.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int boxedHashSetLookup() {
+        int hits = 0;
+        for (long key : probes) {
+            if (boxed.contains(key)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,71 @@
+package ir.alizeyn.benchmark;
+
+import ir.alizeyn.EightPuzzleState;
+import ir.alizeyn.SearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every engine on every 8puzzle depth class. One operation solves the
+ * instances of a class, boards that need exactly depth moves. Select a
+ * subset with -p engine=ASM,IDA -p depth=20,31.
+ * <p>
+ * Moves on the 8puzzle cost findCost(), so a result reported optimal is
+ * checked against the cost A* finds for the board.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EightPuzzleBenchmark {
+
+    private static final int INSTANCES_PER_DEPTH = 10;
+
+    @Param
+    public Engine engine;
+
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13", "14", "15", "16", "17", "18", "19", "20", "21", "22", "23", "24", "25", "26", "27", "28", "29", "30", "31"})
+    public int depth;
+
+    private EightPuzzleState[] starts;
+    private int[] costs;
+
+    @Setup
+    public void setUp() {
+        int[][] boards = Instances.eightPuzzle(depth, INSTANCES_PER_DEPTH);
+        starts = new EightPuzzleState[boards.length];
+        costs = new int[boards.length];
+        for (int i = 0; i < boards.length; i++) {
+            starts[i] = new EightPuzzleState(boards[i]);
+            costs[i] = Engine.ASM.solve(starts[i]).getCost();
+        }
+    }
+
+    @Benchmark
+    public long solve(NodeCounters counters) {
+        long cost = 0;
+        for (int i = 0; i < starts.length; i++) {
+            SearchResult result = engine.solve(starts[i]);
+            if (result.isOptimal() && result.getCost() != costs[i]) {
+                throw new IllegalStateException("Solution of cost " + result.getCost()
+                        + " reported optimal for a board that takes " + costs[i]);
+            }
+            counters.add(result);
+            cost += result.getCost();
+        }
+        return cost;
+    }
+}
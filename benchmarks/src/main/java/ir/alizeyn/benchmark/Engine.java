@@ -0,0 +1,152 @@
+package ir.alizeyn.benchmark;
+
+import ir.alizeyn.AStarSearch;
+import ir.alizeyn.AdditivePatternDatabase;
+import ir.alizeyn.BDSearch;
+import ir.alizeyn.BFSearch;
+import ir.alizeyn.DFSearch;
+import ir.alizeyn.DistanceTable;
+import ir.alizeyn.DuplicateDetection;
+import ir.alizeyn.HDAStarSearch;
+import ir.alizeyn.Heuristic;
+import ir.alizeyn.IDAStarSearch;
+import ir.alizeyn.LinearConflictHeuristic;
+import ir.alizeyn.MMSearch;
+import ir.alizeyn.RBFSearch;
+import ir.alizeyn.SMAStarSearch;
+import ir.alizeyn.SearchResult;
+import ir.alizeyn.TileDomain;
+import ir.alizeyn.TileState;
+import ir.alizeyn.UCSearch;
+import ir.alizeyn.WalkingDistanceHeuristic;
+import ir.alizeyn.WeightedAStarSearch;
+
+/**
+ * The engines as the macro benchmarks run them, named after the options of
+ * ProblemSolver. Engines that take a heuristic use the default pattern
+ * databases where their name ends in P. ASD is A* with the Manhattan
+ * distance through TileDomain, and IDW takes the larger of linear conflicts
+ * and the walking distance, up to 4x4. TABLE only takes 8puzzle boards.
+ */
+public enum Engine {
+
+    DFS {
+        @Override
+        public SearchResult solve(TileState start) {
+            return DFSearch.search(start, DuplicateDetection.GRAPH);
+        }
+    },
+    BFS {
+        @Override
+        public SearchResult solve(TileState start) {
+            return BFSearch.search(start, DuplicateDetection.GRAPH);
+        }
+    },
+    BDS {
+        @Override
+        public SearchResult solve(TileState start) {
+            return BDSearch.search(start, DuplicateDetection.GRAPH);
+        }
+    },
+    UCS {
+        @Override
+        public SearchResult solve(TileState start) {
+            return UCSearch.search(start, DuplicateDetection.GRAPH);
+        }
+    },
+    ASO {
+        @Override
+        public SearchResult solve(TileState start) {
+            return AStarSearch.search(start, 'o', DuplicateDetection.GRAPH);
+        }
+    },
+    ASM {
+        @Override
+        public SearchResult solve(TileState start) {
+            return AStarSearch.search(start, 'm', DuplicateDetection.GRAPH);
+        }
+    },
+    ASD {
+        @Override
+        public SearchResult solve(TileState start) {
+            return AStarSearch.search(new TileDomain(start));
+        }
+    },
+    ASP {
+        @Override
+        public SearchResult solve(TileState start) {
+            return AStarSearch.search(start, 'p', DuplicateDetection.GRAPH);
+        }
+    },
+    RBFS {
+        @Override
+        public SearchResult solve(TileState start) {
+            return RBFSearch.search(start, null);
+        }
+    },
+    RBFSP {
+        @Override
+        public SearchResult solve(TileState start) {
+            return RBFSearch.search(start, AdditivePatternDatabase.forWidth(start.getWidth()));
+        }
+    },
+    IDA {
+        @Override
+        public SearchResult solve(TileState start) {
+            return IDAStarSearch.search(start, null);
+        }
+    },
+    IDAP {
+        @Override
+        public SearchResult solve(TileState start) {
+            return IDAStarSearch.search(start, AdditivePatternDatabase.forWidth(start.getWidth()));
+        }
+    },
+    IDW {
+        @Override
+        public SearchResult solve(TileState start) {
+            return IDAStarSearch.search(start, Heuristic.max(LinearConflictHeuristic.forWidth(start.getWidth()),
+                    WalkingDistanceHeuristic.forWidth(start.getWidth())));
+        }
+    },
+    HDAP {
+        @Override
+        public SearchResult solve(TileState start) {
+            return HDAStarSearch.search(start, AdditivePatternDatabase.forWidth(start.getWidth()),
+                    Runtime.getRuntime().availableProcessors());
+        }
+    },
+    MM {
+        @Override
+        public SearchResult solve(TileState start) {
+            return MMSearch.search(start, null);
+        }
+    },
+    MMP {
+        @Override
+        public SearchResult solve(TileState start) {
+            return MMSearch.search(start, AdditivePatternDatabase.forWidth(start.getWidth()));
+        }
+    },
+    SMA {
+        @Override
+        public SearchResult solve(TileState start) {
+            return SMAStarSearch.search(start, null, SMAStarSearch.DEFAULT_BUDGET);
+        }
+    },
+    WAP {
+        @Override
+        public SearchResult solve(TileState start) {
+            return WeightedAStarSearch.search(start, AdditivePatternDatabase.forWidth(start.getWidth()),
+                    WeightedAStarSearch.DEFAULT_WEIGHT);
+        }
+    },
+    TABLE {
+        @Override
+        public SearchResult solve(TileState start) {
+            return DistanceTable.search(start);
+        }
+    };
+
+    public abstract SearchResult solve(TileState start);
+}
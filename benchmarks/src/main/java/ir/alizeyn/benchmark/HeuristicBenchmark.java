@@ -0,0 +1,80 @@
+package ir.alizeyn.benchmark;
+
+import ir.alizeyn.AdditivePatternDatabase;
+import ir.alizeyn.PuzzleGeometry;
+import ir.alizeyn.SlidingTileState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluating h(n) from scratch on 15puzzle boards: the Manhattan distance
+ * and the default additive pattern databases, from a tile position array as
+ * IDA* and HDA* hold it and from a state as A* passes it. One operation is
+ * one evaluation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeuristicBenchmark {
+
+    private static final int BOARDS = 1024;
+
+    private final PuzzleGeometry geometry = PuzzleGeometry.forWidth(4);
+    private AdditivePatternDatabase pdb;
+    private int[][] cells;
+    private int[][] cellOfTile;
+    private SlidingTileState[] states;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        pdb = AdditivePatternDatabase.forWidth(4);
+        cells = Instances.randomWalks(4, BOARDS, 200, 4);
+        cellOfTile = new int[BOARDS][16];
+        states = new SlidingTileState[BOARDS];
+        for (int i = 0; i < BOARDS; i++) {
+            for (int cell = 0; cell < 16; cell++) {
+                cellOfTile[i][cells[i][cell]] = cell;
+            }
+            states[i] = new SlidingTileState(cells[i]);
+        }
+    }
+
+    private int next() {
+        next = (next + 1) & (BOARDS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public int manhattan() {
+        int[] board = cells[next()];
+        int h = 0;
+        for (int cell = 0; cell < board.length; cell++) {
+            h += geometry.manDist(board[cell], cell);
+        }
+        return h;
+    }
+
+    @Benchmark
+    public int patternDatabases() {
+        return pdb.h(cellOfTile[next()]);
+    }
+
+    @Benchmark
+    public int patternDatabasesFromState() {
+        return pdb.h(states[next()]);
+    }
+}
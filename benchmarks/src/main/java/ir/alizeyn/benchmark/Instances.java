@@ -0,0 +1,191 @@
+package ir.alizeyn.benchmark;
+
+import ir.alizeyn.EightPuzzleState;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The fixed puzzle instances the benchmarks run on. Boards are int arrays in
+ * row order, 0 being the hole, ready for the engines' constructors.
+ */
+public final class Instances {
+
+    /**
+     * The largest number of moves any 8puzzle board needs.
+     */
+    public static final int MAX_EIGHT_PUZZLE_DEPTH = 31;
+
+    private static int[][][] byDepth;
+    private static int[][] korf;
+    private static int[] korfLengths;
+
+    private Instances() {
+    }
+
+    /**
+     * Up to count 8puzzle boards that need exactly depth moves, spread
+     * evenly over all the boards of that depth. Depth 31 has only two.
+     */
+    public static synchronized int[][] eightPuzzle(int depth, int count) {
+        if (byDepth == null) {
+            byDepth = eightPuzzleDepthClasses();
+        }
+        int[][] all = byDepth[depth];
+        int n = Math.min(count, all.length);
+        int[][] picked = new int[n][];
+        for (int i = 0; i < n; i++) {
+            picked[i] = all[(int) ((long) i * all.length / n)].clone();
+        }
+        return picked;
+    }
+
+    /**
+     * Korf's 100 15puzzle instances, converted to this repo's goal.
+     * Korf's goal has the blank in the first cell, ours in the last. Turning
+     * a board half round and renaming tile t to 16 - t maps one goal onto the
+     * other and keeps every move a move, so the optimal solution lengths are
+     * unchanged.
+     */
+    public static synchronized int[][] korf100() {
+        if (korf == null) {
+            loadKorf();
+        }
+        int[][] copy = new int[korf.length][];
+        for (int i = 0; i < korf.length; i++) {
+            copy[i] = korf[i].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * @return the optimal solution length of every Korf instance, in order
+     */
+    public static synchronized int[] korf100Lengths() {
+        if (korfLengths == null) {
+            loadKorf();
+        }
+        return korfLengths.clone();
+    }
+
+    /**
+     * count boards of the given width reached by a seeded random walk of
+     * steps moves from the goal, for micro benchmarks that need many
+     * different but realistic boards.
+     */
+    public static int[][] randomWalks(int width, int count, int steps, long seed) {
+        Random random = new Random(seed);
+        int size = width * width;
+        int[][] boards = new int[count][];
+        for (int b = 0; b < count; b++) {
+            int[] board = new int[size];
+            for (int cell = 0; cell < size - 1; cell++) {
+                board[cell] = cell + 1;
+            }
+            int hole = size - 1;
+            int prev = -1;
+            int[] moves = new int[4];
+            for (int s = 0; s < steps; s++) {
+                int n = 0;
+                if (hole % width > 0) {
+                    moves[n++] = hole - 1;
+                }
+                if (hole % width < width - 1) {
+                    moves[n++] = hole + 1;
+                }
+                if (hole >= width) {
+                    moves[n++] = hole - width;
+                }
+                if (hole < size - width) {
+                    moves[n++] = hole + width;
+                }
+                int from;
+                do {
+                    from = moves[random.nextInt(n)];
+                } while (from == prev);
+                board[hole] = board[from];
+                board[from] = 0;
+                prev = hole;
+                hole = from;
+            }
+            boards[b] = board;
+        }
+        return boards;
+    }
+
+    /*
+     * Breadth-first search from the goal over all 181,440 reachable
+     * 8puzzle boards, grouping them by their distance in moves.
+     */
+    private static int[][][] eightPuzzleDepthClasses() {
+        List<List<int[]>> classes = new ArrayList<List<int[]>>();
+        List<Long> layer = new ArrayList<Long>();
+        HashSet<Long> seen = new HashSet<Long>();
+        layer.add(EightPuzzleState.GOAL_BOARD);
+        seen.add(EightPuzzleState.GOAL_BOARD);
+        long[] buffer = new long[EightPuzzleState.MAX_SUCCESSORS];
+
+        while (!layer.isEmpty()) {
+            List<int[]> boards = new ArrayList<int[]>();
+            List<Long> next = new ArrayList<Long>();
+            for (long board : layer) {
+                boards.add(EightPuzzleState.unpack(board));
+                int n = EightPuzzleState.genSuccessors(board, EightPuzzleState.holeOf(board), buffer);
+                for (int i = 0; i < n; i++) {
+                    if (seen.add(buffer[i])) {
+                        next.add(buffer[i]);
+                    }
+                }
+            }
+            classes.add(boards);
+            layer = next;
+        }
+
+        int[][][] result = new int[classes.size()][][];
+        for (int d = 0; d < result.length; d++) {
+            result[d] = classes.get(d).toArray(new int[0][]);
+        }
+        return result;
+    }
+
+    private static void loadKorf() {
+        List<int[]> boards = new ArrayList<int[]>();
+        List<Integer> lengths = new ArrayList<Integer>();
+        InputStream in = Instances.class.getResourceAsStream("korf100.txt");
+        if (in == null) {
+            throw new IllegalStateException("korf100.txt is missing from the classpath");
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                int[] board = new int[16];
+                for (int cell = 0; cell < 16; cell++) {
+                    int tile = Integer.parseInt(fields[15 - cell]);
+                    board[cell] = tile == 0 ? 0 : 16 - tile;
+                }
+                boards.add(board);
+                lengths.add(Integer.parseInt(fields[16]));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        korf = boards.toArray(new int[0][]);
+        korfLengths = new int[lengths.size()];
+        for (int i = 0; i < korfLengths.length; i++) {
+            korfLengths[i] = lengths.get(i);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ir.alizeyn.benchmark;
+
+import ir.alizeyn.AdditivePatternDatabase;
+import ir.alizeyn.SearchResult;
+import ir.alizeyn.SlidingTileState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Korf's 100 15puzzle instances, solved one after the other in a single
+ * timed operation as in the literature. Narrow the set with
+ * -p instances=1-10 and compare engines with -p engine=IDAP,HDAP,ASP; the
+ * blind engines and the Manhattan distance are too slow for this set.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class KorfBenchmark {
+
+    @Param({"IDAP", "HDAP"})
+    public Engine engine;
+
+    /**
+     * First and last instance, counted from 1 as Korf numbers them.
+     */
+    @Param({"1-100"})
+    public String instances;
+
+    private SlidingTileState[] starts;
+    private int[] lengths;
+
+    @Setup
+    public void setUp() {
+        String[] range = instances.split("-");
+        int first = Integer.parseInt(range[0]);
+        int last = Integer.parseInt(range[range.length - 1]);
+        int[][] boards = Instances.korf100();
+        int[] all = Instances.korf100Lengths();
+        starts = new SlidingTileState[last - first + 1];
+        lengths = new int[starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = new SlidingTileState(boards[first - 1 + i]);
+            lengths[i] = all[first - 1 + i];
+        }
+        // generated or mapped outside of the timed operations
+        AdditivePatternDatabase.forWidth(4);
+    }
+
+    @Benchmark
+    public long solve(NodeTotals counters) {
+        long moves = 0;
+        for (int i = 0; i < starts.length; i++) {
+            SearchResult result = engine.solve(starts[i]);
+            if (result.getCost() != lengths[i]) {
+                throw new IllegalStateException("Non optimal solution of length " + result.getCost()
+                        + " for an instance that takes " + lengths[i]);
+            }
+            counters.add(result);
+            moves += result.getCost();
+        }
+        return moves;
+    }
+}
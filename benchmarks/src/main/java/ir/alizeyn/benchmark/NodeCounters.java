@@ -0,0 +1,31 @@
+package ir.alizeyn.benchmark;
+
+import ir.alizeyn.SearchResult;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Node counts of the searches run by a throughput benchmark. JMH reports
+ * them next to the score as nodes per second.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class NodeCounters {
+
+    public long nodesExpanded;
+    public long nodesGenerated;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        nodesExpanded = 0;
+        nodesGenerated = 0;
+    }
+
+    void add(SearchResult result) {
+        nodesExpanded += result.getNodesExpanded();
+        nodesGenerated += result.getNodesGenerated();
+    }
+}
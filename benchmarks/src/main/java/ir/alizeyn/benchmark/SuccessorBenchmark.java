@@ -0,0 +1,80 @@
+package ir.alizeyn.benchmark;
+
+import ir.alizeyn.EightPuzzleState;
+import ir.alizeyn.SlidingTileState;
+import ir.alizeyn.State;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Successor generation, both through the State interface, which builds a
+ * list of new states, and into a caller's buffer of packed boards. One
+ * operation expands one board; the boards cycle through a fixed set so the
+ * branch pattern is realistic.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class SuccessorBenchmark {
+
+    private static final int BOARDS = 1024;
+
+    private EightPuzzleState[] eight;
+    private SlidingTileState[] fifteen;
+    private final long[] buffer = new long[EightPuzzleState.MAX_SUCCESSORS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        int[][] boards = Instances.randomWalks(3, BOARDS, 100, 3);
+        eight = new EightPuzzleState[BOARDS];
+        for (int i = 0; i < BOARDS; i++) {
+            eight[i] = new EightPuzzleState(boards[i]);
+        }
+        boards = Instances.randomWalks(4, BOARDS, 200, 4);
+        fifteen = new SlidingTileState[BOARDS];
+        for (int i = 0; i < BOARDS; i++) {
+            fifteen[i] = new SlidingTileState(boards[i]);
+        }
+    }
+
+    private int next() {
+        next = (next + 1) & (BOARDS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public ArrayList<State> eightPuzzleList() {
+        return eight[next()].genSuccessors();
+    }
+
+    @Benchmark
+    public long eightPuzzleBuffer() {
+        int n = eight[next()].genSuccessors(buffer);
+        return buffer[n - 1];
+    }
+
+    @Benchmark
+    public ArrayList<State> fifteenPuzzleList() {
+        return fifteen[next()].genSuccessors();
+    }
+
+    @Benchmark
+    public long fifteenPuzzleBuffer() {
+        int n = fifteen[next()].genSuccessors(buffer);
+        return buffer[n - 1];
+    }
+}
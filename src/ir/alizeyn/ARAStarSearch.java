@@ -0,0 +1,279 @@
+package ir.alizeyn;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Defines ARA*, an anytime repairing A* (Likhachev et al.), for the sliding
+ * tile puzzles. It runs a series of Weighted A* searches with a weight that
+ * drops after each one: the first, greedy one finds a solution fast and the
+ * following ones improve it, until the weight reaches 1 and the solution is
+ * proved optimal, or the deadline passes.
+ * <p>
+ * The searches share their work. The nodes left open by one search are
+ * queued again under the next weight rather than started over, and a board
+ * expanded earlier in the current search whose g(n) then improves is not
+ * expanded again but set aside until the next one. A search stops as soon as
+ * no open node has a weighted f(n) below the cost of the best solution, so
+ * later searches are short, and nodes whose unweighted f(n) cannot beat the
+ * solution are dropped.
+ * <p>
+ * After each search the best solution is handed to a listener with its
+ * bound, the smaller of the weight and the solution cost over the lowest
+ * unweighted f(n) among the nodes still open or set aside. The deadline is
+ * only honoured once a first solution is in hand. The bound is on the number
+ * of moves and is not reported on the 8puzzle.
+ */
+public class ARAStarSearch {
+
+    /**
+     * Starting weight used by ProblemSolver, overridable with -Dara.weight.
+     */
+    public static final String WEIGHT_PROPERTY = "ara.weight";
+
+    /**
+     * Milliseconds ProblemSolver allows, overridable with -Dara.millis.
+     */
+    public static final String DEADLINE_PROPERTY = "ara.millis";
+
+    public static final double DEFAULT_WEIGHT = 3.0;
+    public static final double DEFAULT_STEP = 0.5;
+    public static final int DEFAULT_DEADLINE = 10000;
+
+    // expansions between two looks at the clock
+    private static final int CLOCK_EVERY = 1024;
+
+    private final AdditivePatternDatabase pdb;
+    private final long deadline;
+    private final Consumer<SearchResult> listener;
+    private final SearchStatistics stats = new SearchStatistics("ARA*");
+
+    private BucketQueue<SearchNode> open = new BucketQueue<SearchNode>();
+    // the key of a board maps to the position of its best node in nodes
+    private final LongIntHashMap index = new LongIntHashMap(1 << 16);
+    private final ArrayList<SearchNode> nodes = new ArrayList<SearchNode>();
+    // the key of a board maps to the last search that expanded it
+    private final LongIntHashMap closed = new LongIntHashMap(1 << 16);
+    // nodes improved after their board was expanded in the current search
+    private final ArrayList<SearchNode> incons = new ArrayList<SearchNode>();
+
+    private double weight;
+    private int iteration;
+    private int clock;
+    private SearchNode goal;
+
+    private ARAStarSearch(AdditivePatternDatabase pdb, double weight, long deadline,
+                          Consumer<SearchResult> listener) {
+        this.pdb = pdb;
+        this.weight = weight;
+        this.deadline = deadline;
+        this.listener = listener;
+    }
+
+    /**
+     * Initialization function for 8puzzle ARA* with the Manhattan distance,
+     * the default weights and deadline
+     *
+     * @param board - The starting state, represented as a linear array of length
+     *              9 forming 3 meta-rows.
+     */
+    public static SearchResult search(int[] board) {
+        return search(new EightPuzzleState(board), null, DEFAULT_WEIGHT, DEFAULT_STEP, DEFAULT_DEADLINE, null);
+    }
+
+    /**
+     * Initialization function for ARA* on any sliding tile puzzle
+     *
+     * @param start    - The starting state
+     * @param pdb      - pattern databases for the start's width, or null to
+     *                 use the Manhattan distance
+     * @param weight   - the weight of the first search, at least 1
+     * @param step     - how much the weight drops after each search
+     * @param millis   - time allowed to improve the solution, counted from
+     *                 now
+     * @param listener - handed every improved solution as it is found, may be
+     *                 null
+     * @return the best solution found, with its bound
+     */
+    public static SearchResult search(TileState start, AdditivePatternDatabase pdb, double weight, double step,
+                                      long millis, Consumer<SearchResult> listener) {
+        if (!(weight >= 1)) {
+            throw new IllegalArgumentException("Weight must be at least 1: " + weight);
+        }
+        if (!(step > 0)) {
+            throw new IllegalArgumentException("Weight step must be positive: " + step);
+        }
+        long deadline = System.nanoTime() + millis * 1000000L;
+        return new ARAStarSearch(pdb, weight, deadline, listener).run(start, step);
+    }
+
+    private SearchResult run(TileState start, double step) {
+        boolean unitCost = SearchResult.unitCost(start);
+        SearchNode root = new SearchNode(null, start, 0, h(start));
+        record(start.key(), start.keyHi(), root);
+        push(root);
+        if (start.isGoal()) {
+            goal = root;
+        }
+
+        double bound = Double.POSITIVE_INFINITY;
+        int published = Integer.MAX_VALUE;
+        while (true) {
+            stats.iterationStart(goal == null ? -1 : goal.getCost());
+            boolean complete = improvePath();
+            if (goal == null) {
+                // every board was expanded without meeting the goal
+                stats.iterationDone(-1);
+                return SearchResult.notFound(stats);
+            }
+            stats.iterationDone(goal.getCost());
+
+            ArrayList<SearchNode> live = drainLive();
+            int cost = goal.getCost();
+            int lower = cost;
+            for (SearchNode n : live) {
+                lower = Math.min(lower, n.getFCost());
+            }
+            double achieved = lower >= cost ? 1 : (double) cost / lower;
+            if (complete) {
+                achieved = Math.min(achieved, weight);
+            }
+            bound = Math.min(bound, achieved);
+            // the bound is on the number of moves
+            double reported = unitCost ? bound : Double.POSITIVE_INFINITY;
+
+            boolean done = bound <= 1 || System.nanoTime() >= deadline;
+            SearchResult result = done ? SearchResult.bounded(goal, reported, stats) : null;
+            if (listener != null && cost < published) {
+                published = cost;
+                listener.accept(done ? result : SearchResult.bounded(goal, reported, stats.snapshot()));
+            }
+            if (done) {
+                return result;
+            }
+
+            weight = Math.max(1, weight - step);
+            iteration++;
+            for (SearchNode n : live) {
+                // drop the nodes that cannot lead to a cheaper solution
+                if (n.getFCost() < cost) {
+                    push(n);
+                }
+            }
+        }
+    }
+
+    /*
+     * Expands nodes under the current weight until none left open can lead
+     * to a cheaper solution than the one in hand.
+     *
+     * @return false if the deadline cut the search short
+     */
+    private boolean improvePath() {
+        while (!open.isEmpty()) {
+            if (goal != null) {
+                if (goal.getCost() <= open.peekF()) {
+                    return true;
+                }
+                if (++clock == CLOCK_EVERY) {
+                    clock = 0;
+                    if (System.nanoTime() >= deadline) {
+                        return false;
+                    }
+                }
+            }
+
+            SearchNode n = open.pop();
+            long key = ClosedSet.keyOf(n.getCurState());
+            long hi = ClosedSet.keyHiOf(n.getCurState());
+            // skip nodes superseded by a cheaper path to the same board
+            if (nodeOf(key, hi) != n) {
+                stats.duplicate();
+                continue;
+            }
+            if (n.getCurState().isGoal() || goal != null && n.getFCost() >= goal.getCost()) {
+                continue;
+            }
+            closed.put(key, hi, iteration);
+
+            int g = n.getCost();
+            ArrayList<State> successors = n.getCurState().genSuccessors();
+            for (int i = 0; i < successors.size(); i++) {
+                TileState successor = (TileState) successors.get(i);
+                int childG = g + 1;
+                stats.generated();
+
+                long childKey = successor.key();
+                long childHi = successor.keyHi();
+                SearchNode known = nodeOf(childKey, childHi);
+                if (known != null && known.getCost() <= childG) {
+                    stats.duplicate();
+                    continue;
+                }
+                if (known != null) {
+                    stats.reopened();
+                }
+
+                long t = stats.heuristicStart();
+                int h = h(successor);
+                stats.heuristicDone(t);
+                SearchNode child = new SearchNode(n, successor, childG, h);
+                record(childKey, childHi, child);
+
+                if (successor.isGoal() && (goal == null || childG < goal.getCost())) {
+                    goal = child;
+                }
+                if (closed.get(childKey, childHi, -1) == iteration) {
+                    incons.add(child);
+                } else {
+                    push(child);
+                }
+            }
+            stats.expanded();
+            stats.openSize(open.size() + incons.size());
+            stats.closedSize(index.size());
+        }
+        return true;
+    }
+
+    /*
+     * Empties the open list and the nodes set aside, keeping the ones that
+     * are still the best node of their board.
+     */
+    private ArrayList<SearchNode> drainLive() {
+        ArrayList<SearchNode> live = new ArrayList<SearchNode>(open.size() + incons.size());
+        for (SearchNode n = open.pop(); n != null; n = open.pop()) {
+            if (nodeOf(ClosedSet.keyOf(n.getCurState()), ClosedSet.keyHiOf(n.getCurState())) == n) {
+                live.add(n);
+            }
+        }
+        for (SearchNode n : incons) {
+            if (nodeOf(ClosedSet.keyOf(n.getCurState()), ClosedSet.keyHiOf(n.getCurState())) == n) {
+                live.add(n);
+            }
+        }
+        incons.clear();
+        // the buckets of the old weight's f(n) are no use to the next one
+        open = new BucketQueue<SearchNode>();
+        return live;
+    }
+
+    private void push(SearchNode n) {
+        int g = n.getCost();
+        open.push(n, WeightedAStarSearch.weighted(g, n.getHCost(), weight), g);
+    }
+
+    private void record(long key, long hi, SearchNode n) {
+        index.put(key, hi, nodes.size());
+        nodes.add(n);
+    }
+
+    private SearchNode nodeOf(long key, long hi) {
+        int position = index.get(key, hi, -1);
+        return position < 0 ? null : nodes.get(position);
+    }
+
+    private int h(TileState s) {
+        return pdb == null ? s.getManDist() : pdb.h(s);
+    }
+}
@@ -1,13 +1,17 @@
  package ir.alizeyn;
 
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Stack;
+import java.util.List;
 
 /**
  * Defines an A* search to be performed on a qualifying puzzle. Currently
  * supports 8puzzle and FWGC.
+ * <p>
+ * The open list is a {@link BucketQueue} over the integer f(n), ties going to
+ * the node with the highest g(n), so push and pop are O(1).
  * 
  * @author Michael Langston && Gabe Ferrer
  */
@@ -20,17 +24,127 @@ public class AStarSearch
 	 *            - The starting state, represented as a linear array of length
 	 *            9 forming 3 meta-rows.
 	 */
-	public static void search(int[] board, char heuristic)
+	public static SearchResult search(int[] board, char heuristic)
 	{
-		SearchNode root = new SearchNode(new EightPuzzleState(board));
-		Queue<SearchNode> q = new LinkedList<SearchNode>();
-		q.add(root);
+		return search(board, heuristic, DuplicateDetection.GRAPH);
+	}
+
+	/**
+	 * Initialization function for 8puzzle A*Search
+	 * 
+	 * @param board
+	 *            - The starting state, represented as a linear array of length
+	 *            9 forming 3 meta-rows.
+	 * @param mode
+	 *            - how repeated boards are detected
+	 */
+	public static SearchResult search(int[] board, char heuristic, DuplicateDetection mode)
+	{
+		return search(new EightPuzzleState(board), heuristic, mode);
+	}
+
+	/**
+	 * Initialization function for A*Search on any sliding tile puzzle. A
+	 * board that fits a single word searched in GRAPH mode goes through
+	 * {@link #searchPooled(TileState, char)}.
+	 * 
+	 * @param start
+	 *            - The starting state
+	 * @param mode
+	 *            - how repeated boards are detected
+	 */
+	public static SearchResult search(TileState start, char heuristic, DuplicateDetection mode)
+	{
+		return search(start, heuristic, mode, null);
+	}
+
+	/**
+	 * Initialization function for A*Search on any sliding tile puzzle,
+	 * taking snapshots on the way. Only the pooled search takes them, the
+	 * checkpoint is not used otherwise.
+	 * 
+	 * @param start
+	 *            - The starting state
+	 * @param mode
+	 *            - how repeated boards are detected
+	 * @param checkpoint
+	 *            - where snapshots go and are resumed from, or null
+	 */
+	public static SearchResult search(TileState start, char heuristic, DuplicateDetection mode,
+			Checkpoint checkpoint)
+	{
+		if (mode == DuplicateDetection.GRAPH
+				&& !PuzzleGeometry.forWidth(start.getWidth()).isWide())
+		{
+			return searchPooled(start, heuristic, checkpoint);
+		}
+		return searchObjects(start, null, heuristic, mode);
+	}
+
+	/**
+	 * Initialization function for A*Search on any sliding tile puzzle with
+	 * any heuristic, evaluated on every generated board. It keeps every node
+	 * as a SearchNode, the pooled search only knowing the heuristics selected
+	 * by a char.
+	 * 
+	 * @param start
+	 *            - The starting state
+	 * @param heuristic
+	 *            - h(n), for boards of the start's width
+	 * @param mode
+	 *            - how repeated boards are detected
+	 */
+	public static SearchResult search(TileState start, Heuristic heuristic, DuplicateDetection mode)
+	{
+		return searchObjects(start, heuristic, ' ', mode);
+	}
+
+	/*
+	 * A*Search over SearchNode objects, with the given heuristic if there is
+	 * one and the one selected by the char otherwise.
+	 */
+	private static SearchResult searchObjects(TileState start, Heuristic given, char heuristic,
+			DuplicateDetection mode)
+	{
+		SearchStatistics stats = new SearchStatistics("A*");
+		SearchNode root = new SearchNode(start);
+		BucketQueue<SearchNode> open = new BucketQueue<SearchNode>();
 
-		int searchCount = 1; // counter for number of iterations
+		/*
+		 * In GRAPH mode the closed set is an index of the best g(n) found for
+		 * every board. A cheaper path to a known board pushes a new node and
+		 * leaves the old one in the queue, it is recognised as stale when
+		 * popped (lazy deletion). The other modes go through ClosedSet.
+		 */
+		boolean graph = mode == DuplicateDetection.GRAPH;
+		LongIntHashMap bestG = new LongIntHashMap(1 << 16);
+		ClosedSet closed = new ClosedSet(mode);
 
-		while (!q.isEmpty()) // while the queue is not empty
+		if (graph)
+		{
+			bestG.put(ClosedSet.keyOf(root.getCurState()), ClosedSet.keyHiOf(root.getCurState()), 0);
+		}
+		else
 		{
-			SearchNode tempNode = q.poll();
+			closed.isDuplicate(root);
+		}
+		open.push(root, given == null ? heuristic(root.getCurState(), heuristic)
+				: given.h(start), 0);
+		stats.openSize(1);
+
+		while (!open.isEmpty())
+		{
+			SearchNode tempNode = open.pop();
+			int g = tempNode.getCost();
+
+			// skip nodes superseded by a cheaper path to the same board
+			if (graph
+					&& g > bestG.get(ClosedSet.keyOf(tempNode.getCurState()),
+							ClosedSet.keyHiOf(tempNode.getCurState()), Integer.MAX_VALUE))
+			{
+				stats.duplicate();
+				continue;
+			}
 
 			// if the tempNode is not the goal state
 			if (!tempNode.getCurState().isGoal())
@@ -38,134 +152,333 @@ public class AStarSearch
 				// generate tempNode's immediate successors
 				ArrayList<State> tempSuccessors = tempNode.getCurState()
 						.genSuccessors();
-				ArrayList<SearchNode> nodeSuccessors = new ArrayList<SearchNode>();
 
 				/*
-				 * Loop through the successors, wrap them in a SearchNode, check
-				 * if they've already been evaluated, and if not, add them to
-				 * the queue
+				 * Loop through the successors, wrap them in a SearchNode and
+				 * queue them under their f(n) unless they are repeats
 				 */
 				for (int i = 0; i < tempSuccessors.size(); i++)
 				{
-					SearchNode checkedNode;
-					// make the node
-					if (heuristic == 'o')
+					State successor = tempSuccessors.get(i);
+					int childG = g + (int) successor.findCost();
+					stats.generated();
+
+					if (graph)
 					{
-						/*
-						 * Create a new SearchNode, with tempNode as the parent,
-						 * tempNode's cost + the new cost (1) for this state,
-						 * and the Out of Place h(n) value
-						 */
-						checkedNode = new SearchNode(tempNode, tempSuccessors.get(i), tempNode.getCost() + tempSuccessors.get(i).findCost(), ((EightPuzzleState) tempSuccessors.get(i)).getOutOfPlace());
+						long key = ClosedSet.keyOf(successor);
+						long hi = ClosedSet.keyHiOf(successor);
+						int known = bestG.get(key, hi, Integer.MAX_VALUE);
+						if (known <= childG)
+						{
+							stats.duplicate();
+							continue;
+						}
+						if (known != Integer.MAX_VALUE)
+						{
+							stats.reopened();
+						}
+						bestG.put(key, hi, childG);
 					}
-					else
+
+					long t = stats.heuristicStart();
+					int h = given == null ? heuristic(successor, heuristic)
+							: given.h((TileState) successor);
+					stats.heuristicDone(t);
+					SearchNode checkedNode = new SearchNode(tempNode, successor, childG, h);
+
+					if (graph || !closed.isDuplicate(checkedNode))
 					{
-						// See previous comment
-						checkedNode = new SearchNode(tempNode,
-								tempSuccessors.get(i), tempNode.getCost()
-										+ tempSuccessors.get(i).findCost(),
-								((EightPuzzleState) tempSuccessors.get(i))
-										.getManDist());
+						open.push(checkedNode, childG + h, childG);
 					}
-
-					// Check for repeats before adding the new node
-					if (!checkRepeats(checkedNode))
+					else
 					{
-						nodeSuccessors.add(checkedNode);
+						stats.duplicate();
 					}
 				}
 
-				// Check to see if nodeSuccessors is empty. If it is, continue
-				// the loop from the top
-				if (nodeSuccessors.size() == 0)
-					continue;
+				stats.expanded();
+				stats.openSize(open.size());
+				stats.closedSize(graph ? bestG.size() : closed.size());
+			}
+			else
+			// The goal state has been found, report the path it took to get
+			// to it.
+			{
+				return SearchResult.found(tempNode, true, stats);
+			}
+		}
 
-				SearchNode lowestNode = nodeSuccessors.get(0);
+		return SearchResult.notFound(stats);
+	}
 
-				/*
-				 * This loop finds the lowest f(n) in a node, and then sets that
-				 * node as the lowest.
-				 */
-				for (int i = 0; i < nodeSuccessors.size(); i++)
+	/**
+	 * A*Search in GRAPH mode over a {@link NodePool} instead of SearchNode
+	 * objects. The open list holds int handles, and the closed set maps every
+	 * board to the handle of its best node, a popped handle that is no longer
+	 * the best for its board being stale. h(n) is updated from the moved tile
+	 * like genSuccessors() does, except for the pattern databases which are
+	 * read on the whole board.
+	 * 
+	 * @param start
+	 *            - The starting state, its board fitting a single word
+	 */
+	public static SearchResult searchPooled(TileState start, char heuristic)
+	{
+		return searchPooled(start, heuristic, null);
+	}
+
+	/**
+	 * Pooled A*Search taking snapshots on the way. A snapshot holds the pool
+	 * and the handles in the open list. A board is only added again to the
+	 * pool with a lower g(n), so the closed set is rebuilt on resume by
+	 * mapping every board to the last handle holding it.
+	 * 
+	 * @param start
+	 *            - The starting state, its board fitting a single word
+	 * @param checkpoint
+	 *            - where snapshots go and are resumed from, or null
+	 */
+	public static SearchResult searchPooled(TileState start, char heuristic, Checkpoint checkpoint)
+	{
+		String engine = "A*" + heuristic;
+		SearchStatistics stats = new SearchStatistics("A*");
+		PuzzleGeometry geometry = PuzzleGeometry.forWidth(start.getWidth());
+		boolean eight = start instanceof EightPuzzleState;
+		AdditivePatternDatabase pdb = heuristic == 'p'
+				? AdditivePatternDatabase.forWidth(start.getWidth()) : null;
+		int[] cellOfTile = new int[geometry.getSize()];
+		long goal = geometry.getGoalLo();
+
+		NodePool pool;
+		IntBucketQueue open = new IntBucketQueue();
+		LongIntHashMap closed = new LongIntHashMap(1 << 16);
+
+		DataInputStream snapshot = checkpoint == null ? null : checkpoint.resume(engine, start);
+		if (snapshot != null)
+		{
+			try
+			{
+				pool = NodePool.readFrom(snapshot);
+				int queued = snapshot.readInt();
+				for (int i = 0; i < queued; i++)
 				{
-					if (lowestNode.getFCost() > nodeSuccessors.get(i)
-							.getFCost())
-					{
-						lowestNode = nodeSuccessors.get(i);
-					}
+					int n = snapshot.readInt();
+					open.push(n, pool.g(n) + pool.h(n), pool.g(n));
+				}
+				snapshot.close();
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+			for (int n = 0; n < pool.size(); n++)
+			{
+				closed.put(pool.board(n), n);
+			}
+		}
+		else
+		{
+			pool = new NodePool(1 << 16);
+			long root = start.key();
+			int rootH = heuristic(start, heuristic);
+			closed.put(root, pool.add(root, NodePool.NONE, 0, rootH, NodePool.NONE));
+			open.push(0, rootH, 0);
+		}
+		stats.openSize(open.size());
+
+		while (!open.isEmpty())
+		{
+			int n = open.pop();
+			long board = pool.board(n);
+
+			// skip nodes superseded by a cheaper path to the same board
+			if (closed.get(board, NodePool.NONE) != n)
+			{
+				stats.duplicate();
+				continue;
+			}
+			if (board == goal)
+			{
+				if (checkpoint != null)
+				{
+					checkpoint.finish();
 				}
+				return SearchResult.found(pool.path(n, start), true, stats);
+			}
 
-				int lowestValue = (int) lowestNode.getFCost();
+			int hole = geometry.holeOf(board);
+			int g = pool.g(n);
+			int h = pool.h(n);
+			for (int from : geometry.getMoves(hole))
+			{
+				stats.generated();
+				// moving the tile back where it came from only undoes the last move
+				if (from == pool.move(n))
+				{
+					stats.duplicate();
+					continue;
+				}
+				long child = geometry.slide(board, hole, from);
+				int childG = g + (eight ? EightPuzzleState.findCost(child) : 1);
 
-				// Adds any nodes that have that same lowest value.
-				for (int i = 0; i < nodeSuccessors.size(); i++)
+				int known = closed.get(child, NodePool.NONE);
+				if (known != NodePool.NONE)
 				{
-					if (nodeSuccessors.get(i).getFCost() == lowestValue)
+					if (pool.g(known) <= childG)
 					{
-						q.add(nodeSuccessors.get(i));
+						stats.duplicate();
+						continue;
 					}
+					stats.reopened();
 				}
 
-				searchCount++;
-			}
-			else
-			// The goal state has been found. Print the path it took to get to
-			// it.
-			{
-				// Use a stack to track the path from the starting state to the
-				// goal state
-				Stack<SearchNode> solutionPath = new Stack<SearchNode>();
-				solutionPath.push(tempNode);
-				tempNode = tempNode.getParent();
-
-				while (tempNode.getParent() != null)
+				long t = stats.heuristicStart();
+				int childH;
+				int tile = geometry.get(board, 0, from);
+				if (pdb != null)
+				{
+					for (int cell = 0; cell < cellOfTile.length; cell++)
+					{
+						cellOfTile[geometry.get(child, 0, cell)] = cell;
+					}
+					childH = pdb.h(cellOfTile);
+				}
+				else if (heuristic == 'o')
+				{
+					childH = h + (eight ? EightPuzzleState.outOfPlaceDelta(board, hole, from)
+							: (tile == geometry.goalTile(hole) ? 0 : 1)
+									- (tile == geometry.goalTile(from) ? 0 : 1));
+				}
+				else
 				{
-					solutionPath.push(tempNode);
-					tempNode = tempNode.getParent();
+					childH = h + geometry.manDist(tile, hole) - geometry.manDist(tile, from);
 				}
-				solutionPath.push(tempNode);
+				stats.heuristicDone(t);
+
+				int c = pool.add(child, n, childG, childH, hole);
+				closed.put(child, c);
+				open.push(c, childG + childH, childG);
+			}
 
-				// The size of the stack before looping through and emptying it.
-				int loopSize = solutionPath.size();
+			stats.expanded();
+			stats.openSize(open.size());
+			stats.closedSize(closed.size());
 
-				for (int i = 0; i < loopSize; i++)
+			if (checkpoint != null && checkpoint.isDue())
+			{
+				Checkpoint.Snapshot out = checkpoint.begin(engine, start);
+				pool.writeTo(out);
+				int[] queued = open.toArray();
+				out.putInt(queued.length);
+				for (int q : queued)
 				{
-					tempNode = solutionPath.pop();
-					tempNode.getCurState().printState();
-					System.out.println();
-					System.out.println();
+					out.putInt(q);
 				}
-				System.out.println("The cost was: " + tempNode.getCost());
-				System.exit(0);
+				checkpoint.save(out);
 			}
 		}
 
-		// This should never happen with our current puzzles.
-		System.out.println("Error! No solution found!");
-
+		if (checkpoint != null)
+		{
+			checkpoint.finish();
+		}
+		return SearchResult.notFound(stats);
 	}
 
-	/*
-	 * Helper method to check to see if a SearchNode has already been evaluated.
-	 * Returns true if it has, false if it hasn't.
+	/**
+	 * A*Search on any {@link SearchDomain}, over a {@link NodePool} like
+	 * {@link #searchPooled(TileState, char)}. States are the domain's keys,
+	 * successors are read from one buffer reused for every expansion, and
+	 * h(n) comes with them, so the search makes no objects per node and
+	 * every call goes to the one domain class. Costs must fit a pooled node.
+	 * 
+	 * @param domain
+	 *            - the problem, its h(n) admissible for the solution to be
+	 *            optimal
 	 */
-	private static boolean checkRepeats(SearchNode n)
+	public static SearchResult search(SearchDomain domain)
 	{
-		boolean retValue = false;
-		SearchNode checkNode = n;
+		SearchStatistics stats = new SearchStatistics("A*");
+		NodePool pool = new NodePool(1 << 16);
+		IntBucketQueue open = new IntBucketQueue();
+		LongIntHashMap closed = new LongIntHashMap(1 << 16);
+		SearchDomain.Successors successors = new SearchDomain.Successors();
+
+		long root = domain.start();
+		int rootH = domain.h(root);
+		closed.put(root, pool.add(root, NodePool.NONE, 0, rootH, NodePool.NONE));
+		open.push(0, rootH, 0);
+		stats.openSize(1);
 
-		// While n's parent isn't null, check to see if it's equal to the node
-		// we're looking for.
-		while (n.getParent() != null && !retValue)
+		while (!open.isEmpty())
 		{
-			if (n.getParent().getCurState().equals(checkNode.getCurState()))
+			int n = open.pop();
+			long state = pool.board(n);
+
+			// skip nodes superseded by a cheaper path to the same state
+			if (closed.get(state, NodePool.NONE) != n)
+			{
+				stats.duplicate();
+				continue;
+			}
+			if (domain.isGoal(state))
+			{
+				List<State> path = new ArrayList<State>();
+				for (long s : pool.path(n))
+				{
+					path.add(domain.toState(s));
+				}
+				return SearchResult.found(path, true, stats);
+			}
+
+			int g = pool.g(n);
+			domain.successors(state, pool.h(n), successors);
+			for (int i = 0; i < successors.size(); i++)
 			{
-				retValue = true;
+				long child = successors.state(i);
+				int childG = g + successors.cost(i);
+				stats.generated();
+
+				int known = closed.get(child, NodePool.NONE);
+				if (known != NodePool.NONE)
+				{
+					if (pool.g(known) <= childG)
+					{
+						stats.duplicate();
+						continue;
+					}
+					stats.reopened();
+				}
+
+				int childH = successors.h(i);
+				int c = pool.add(child, n, childG, childH, NodePool.NONE);
+				closed.put(child, c);
+				open.push(c, childG + childH, childG);
 			}
-			n = n.getParent();
+
+			stats.expanded();
+			stats.openSize(open.size());
+			stats.closedSize(closed.size());
 		}
+		return SearchResult.notFound(stats);
+	}
 
-		return retValue;
+	/*
+	 * h(n) for s, 'o' selects tiles out of place, 'p' the default additive
+	 * pattern databases, anything else the Manhattan distance.
+	 */
+	private static int heuristic(State s, char heuristic)
+	{
+		TileState state = (TileState) s;
+		switch (heuristic)
+		{
+			case 'o':
+				return state.getOutOfPlace();
+			case 'p':
+				return AdditivePatternDatabase.forWidth(state.getWidth()).h(state);
+			default:
+				return state.getManDist();
+		}
 	}
 
 }
@@ -0,0 +1,246 @@
+package ir.alizeyn;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Additive disjoint pattern database heuristic. The tiles are split into
+ * disjoint patterns and h(n) is the sum of the pattern databases' values.
+ * Each database only counts moves of its own tiles, so the sum never
+ * overestimates and is far stronger than the Manhattan distance.
+ * <p>
+ * The tables live in files under a directory, one per pattern, and are
+ * memory mapped. The first run that finds a file missing generates it.
+ * <p>
+ * As a {@link Heuristic}, the tracker keeps the value of every pattern and
+ * only reads the table of the pattern holding the moved tile.
+ */
+public class AdditivePatternDatabase implements Heuristic {
+
+    /**
+     * Directory the default databases live in, overridable with -Dpdb.dir.
+     */
+    public static final String DIR_PROPERTY = "pdb.dir";
+
+    // 8puzzle, two patterns of four tiles
+    public static final int[][] PARTITION_8_4_4 = {
+            {1, 2, 3, 4},
+            {5, 6, 7, 8}};
+
+    // 15puzzle, the 6-6-3 partitioning
+    public static final int[][] PARTITION_15_6_6_3 = {
+            {1, 5, 6, 9, 10, 13},
+            {7, 8, 11, 12, 14, 15},
+            {2, 3, 4}};
+
+    // 15puzzle, the 5-5-5 partitioning, weaker but cheap to generate
+    public static final int[][] PARTITION_15_5_5_5 = {
+            {1, 2, 3, 4, 7},
+            {5, 6, 9, 10, 13},
+            {8, 11, 12, 14, 15}};
+
+    private static final AdditivePatternDatabase[] DEFAULTS =
+            new AdditivePatternDatabase[PuzzleGeometry.MAX_WIDTH + 1];
+
+    private final PuzzleGeometry geometry;
+    private final PatternDatabase[] patterns;
+    private final int[] patternOfTile;
+    // the cell of every tile for h(TileState), one array per thread as the
+    // databases are shared by the threads of HDA*
+    private final ThreadLocal<int[]> scratch;
+
+    private AdditivePatternDatabase(PuzzleGeometry geometry, PatternDatabase[] patterns) {
+        this.geometry = geometry;
+        this.patterns = patterns;
+        this.patternOfTile = new int[geometry.getSize()];
+        Arrays.fill(patternOfTile, -1);
+        for (int p = 0; p < patterns.length; p++) {
+            for (int tile : patterns[p].getTiles()) {
+                if (tile <= 0 || tile >= geometry.getSize() || patternOfTile[tile] != -1) {
+                    throw new IllegalArgumentException("Patterns must be disjoint tiles of the puzzle");
+                }
+                patternOfTile[tile] = p;
+            }
+        }
+        this.scratch = new ThreadLocal<int[]>() {
+            @Override
+            protected int[] initialValue() {
+                return new int[geometry.getSize()];
+            }
+        };
+    }
+
+    /**
+     * Opens the databases of a partition from dir, generating the missing
+     * ones.
+     *
+     * @param geometry  - the geometry of the puzzle
+     * @param partition - disjoint patterns of tiles
+     * @param dir       - the directory holding the table files
+     */
+    public static AdditivePatternDatabase load(PuzzleGeometry geometry, int[][] partition, Path dir)
+            throws IOException {
+        PatternDatabase[] patterns = new PatternDatabase[partition.length];
+        for (int p = 0; p < partition.length; p++) {
+            patterns[p] = PatternDatabase.load(geometry, partition[p], dir.resolve(fileName(geometry, partition[p])));
+        }
+        return new AdditivePatternDatabase(geometry, patterns);
+    }
+
+    /**
+     * The default databases for a width: 4-4 for the 8puzzle and 6-6-3 for
+     * the 15puzzle, kept in the directory named by {@link #DIR_PROPERTY}.
+     * There is no default for 5x5, its patterns do not fit the generator.
+     */
+    public static synchronized AdditivePatternDatabase forWidth(int width) {
+        if (DEFAULTS[width] == null) {
+            int[][] partition;
+            if (width == 3) {
+                partition = PARTITION_8_4_4;
+            } else if (width == 4) {
+                partition = PARTITION_15_6_6_3;
+            } else {
+                throw new IllegalArgumentException("No default pattern databases for width " + width);
+            }
+            Path dir = Paths.get(System.getProperty(DIR_PROPERTY, "pdb"));
+            try {
+                DEFAULTS[width] = load(PuzzleGeometry.forWidth(width), partition, dir);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return DEFAULTS[width];
+    }
+
+    /**
+     * @return h(n) for the board of s
+     */
+    @Override
+    public int h(TileState s) {
+        int[] cellOfTile = scratch.get();
+        for (int cell = 0; cell < cellOfTile.length; cell++) {
+            cellOfTile[s.getTile(cell)] = cell;
+        }
+        return h(cellOfTile);
+    }
+
+    /**
+     * @param cellOfTile - the cell of every tile, indexed by tile
+     * @return h(n) for that board
+     */
+    public int h(int[] cellOfTile) {
+        int h = 0;
+        for (PatternDatabase pattern : patterns) {
+            h += pattern.lookupBoard(cellOfTile);
+        }
+        return h;
+    }
+
+    @Override
+    public Tracker track(TileState start) {
+        return new PatternTracker(start);
+    }
+
+    @Override
+    public String getName() {
+        return "pdb";
+    }
+
+    /**
+     * The value of a single pattern. Moving a tile only changes the value of
+     * the pattern holding it, which lets engines update h(n) incrementally.
+     */
+    public int patternValue(int pattern, int[] cellOfTile) {
+        return patterns[pattern].lookupBoard(cellOfTile);
+    }
+
+    /**
+     * @return the index of the pattern holding tile, -1 for the hole
+     */
+    public int patternOf(int tile) {
+        return patternOfTile[tile];
+    }
+
+    /**
+     * @return the number of patterns
+     */
+    public int size() {
+        return patterns.length;
+    }
+
+    public PuzzleGeometry getGeometry() {
+        return geometry;
+    }
+
+    private static String fileName(PuzzleGeometry geometry, int[] tiles) {
+        StringBuilder name = new StringBuilder("pdb-").append(geometry.getWidth())
+                .append('x').append(geometry.getWidth());
+        for (int tile : tiles) {
+            name.append('-').append(tile);
+        }
+        return name.append(".bin").toString();
+    }
+
+    /*
+     * The cell of every tile and the value of every pattern. A move saves
+     * the moved tile and the old value of its pattern in one stack entry.
+     */
+    private final class PatternTracker extends Tracker {
+        // the database's own, held here to save a load per move
+        private final PatternDatabase[] patterns = AdditivePatternDatabase.this.patterns;
+        private final int[] patternOfTile = AdditivePatternDatabase.this.patternOfTile;
+        private final int[] cellOfTile = new int[geometry.getSize()];
+        private final int[] patternH = new int[patterns.length];
+        private int h;
+
+        PatternTracker(TileState start) {
+            for (int cell = 0; cell < cellOfTile.length; cell++) {
+                cellOfTile[start.getTile(cell)] = cell;
+            }
+            for (int p = 0; p < patterns.length; p++) {
+                patternH[p] = patterns[p].lookupBoard(cellOfTile);
+                h += patternH[p];
+            }
+        }
+
+        @Override
+        public int h() {
+            return h;
+        }
+
+        @Override
+        public int move(int tile, int from, int to) {
+            cellOfTile[tile] = to;
+            cellOfTile[0] = from;
+            int pattern = patternOfTile[tile];
+            if (pattern < 0) {
+                push(tile);
+                return h;
+            }
+            int old = patternH[pattern];
+            push(old << 8 | tile);
+            int value = patterns[pattern].lookupBoard(cellOfTile);
+            patternH[pattern] = value;
+            h += value - old;
+            return h;
+        }
+
+        @Override
+        public void undo() {
+            int saved = pop();
+            int tile = saved & 0xFF;
+            // the tile and the hole swap back
+            int cell = cellOfTile[tile];
+            cellOfTile[tile] = cellOfTile[0];
+            cellOfTile[0] = cell;
+            int pattern = patternOfTile[tile];
+            if (pattern >= 0) {
+                h += (saved >>> 8) - patternH[pattern];
+                patternH[pattern] = saved >>> 8;
+            }
+        }
+    }
+}
@@ -1,150 +1,176 @@
 package ir.alizeyn;
 
-import java.util.*;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Defines a Bidirectional search: a breadth-first search forward from the
+ * start and one backward from the goal, stopping where they meet.
+ * <p>
+ * Each direction indexes every board it has reached by its packed key, so
+ * checking whether a generated board was reached by the other direction is a
+ * single hash lookup. The direction with the smaller frontier expands a whole
+ * layer at a time; the search only stops once the layer in which the two
+ * searches met is complete, so the solution has the fewest moves, and the two
+ * half-paths are spliced into one. Its cost is the findCost() sum of the
+ * path, reported optimal only where every move costs 1.
+ *
+ * @author Michael Langston && Gabe Ferrer
+ */
 public class BDSearch {
 
-    public static State initialState;
-
-    public static void search(int[] board) {
-
-        int[] goalBoard = new int[]{1, 2, 3, 4, 5, 6, 7, 8, 0};
-
-        initialState = new EightPuzzleState(board);
-        State goalState = new EightPuzzleState(goalBoard);
-
-        SearchNode root = new SearchNode(initialState);
-        SearchNode goal = new SearchNode(goalState);
-
-        Queue<SearchNode> forwardQueue = new LinkedList<>();
-        Queue<SearchNode> backwardQueue = new LinkedList<>();
+    public static SearchResult search(int[] board) {
+        return search(board, DuplicateDetection.GRAPH);
+    }
 
-        forwardQueue.add(root);
-        backwardQueue.add(goal);
+    public static SearchResult search(int[] board, DuplicateDetection mode) {
+        return search(new EightPuzzleState(board), mode);
+    }
 
-        performSearch(forwardQueue, backwardQueue);
+    /**
+     * Initialization function for BDSearch on any sliding tile puzzle
+     *
+     * @param start - The starting state
+     * @param mode  - how repeated boards are detected within each direction
+     */
+    public static SearchResult search(TileState start, DuplicateDetection mode) {
+        Frontier forward = new Frontier(new SearchNode(start), mode);
+        Frontier backward = new Frontier(new SearchNode(start.goal()), mode);
+        return performSearch(forward, backward);
     }
 
-    private static boolean checkRepeats(SearchNode n) {
-        boolean retValue = false;
-        SearchNode checkNode = n;
+    private static SearchResult performSearch(Frontier forward, Frontier backward) {
+        SearchStatistics stats = new SearchStatistics("BDS");
+        stats.openSize(2);
+
+        if (forward.root().getCurState().isGoal()) {
+            return success(SearchResult.splice(forward.root(), null), stats);
+        }
 
-        // While n's parent isn't null, check to see if it's equal to the node
-        // we're looking for.
-        while (n.getParent() != null && !retValue) {
-            if (n.getParent().getCurState().equals(checkNode.getCurState())) {
-                retValue = true;
+        while (!forward.isExhausted() && !backward.isExhausted()) {
+            boolean forwardTurn = forward.layerSize() <= backward.layerSize();
+            Frontier expanding = forwardTurn ? forward : backward;
+            Frontier other = forwardTurn ? backward : forward;
+
+            // the meeting found so far: a node of each direction on one board
+            SearchNode bestOwn = null;
+            SearchNode bestOther = null;
+            int bestDepth = Integer.MAX_VALUE;
+
+            int end = expanding.layerEnd;
+            for (int i = expanding.layerStart; i < end; i++) {
+                SearchNode n = expanding.nodes.get(i);
+                ArrayList<State> successors = n.getCurState().genSuccessors();
+                for (int s = 0; s < successors.size(); s++) {
+                    State successor = successors.get(s);
+                    SearchNode child = new SearchNode(n, successor,
+                            n.getCost() + (int) successor.findCost(), 0);
+                    stats.generated();
+
+                    if (!expanding.add(child)) {
+                        stats.duplicate();
+                        continue;
+                    }
+                    int met = other.indexOf(ClosedSet.keyOf(successor), ClosedSet.keyHiOf(successor));
+                    if (met >= 0 && expanding.depth + 1 + other.depths[met] < bestDepth) {
+                        bestOwn = child;
+                        bestOther = other.nodes.get(met);
+                        bestDepth = expanding.depth + 1 + other.depths[met];
+                    }
+                }
+                stats.expanded();
+            }
+            expanding.nextLayer();
+            stats.openSize(forward.layerSize() + backward.layerSize());
+            stats.closedSize(forward.index.size() + backward.index.size());
+
+            if (bestOwn != null) {
+                return success(forwardTurn
+                        ? SearchResult.splice(bestOwn, bestOther)
+                        : SearchResult.splice(bestOther, bestOwn), stats);
             }
-            n = n.getParent();
         }
 
-        return retValue;
+        return SearchResult.notFound(stats);
     }
 
-    private static boolean isInitialState(State state) {
-        return state.equals(initialState);
+    private static SearchResult success(List<State> path, SearchStatistics stats) {
+        return SearchResult.found(path, SearchResult.unitCost(path.get(0)), stats);
     }
 
-    private static SearchNode queueContainsNode(Queue<SearchNode> q, SearchNode targetNode) {
-        for (SearchNode n :
-                q) {
-            if (n.getCurState().equals(targetNode.getCurState())) {
-                return n;
-            }
+    /*
+     * The nodes reached by one direction in breadth-first order, the ones of
+     * the layer to expand next between layerStart and layerEnd. The index maps
+     * a board's key to the position of the shallowest node holding it.
+     */
+    private static final class Frontier {
+        final ArrayList<SearchNode> nodes = new ArrayList<SearchNode>();
+        final LongIntHashMap index = new LongIntHashMap(1 << 16);
+        // depth of every node in nodes
+        int[] depths = new int[1 << 10];
+        // repeat detection besides the index, null in GRAPH mode where the
+        // index already holds every board reached
+        final ClosedSet closed;
+        int layerStart;
+        int layerEnd;
+        int depth;
+
+        Frontier(SearchNode root, DuplicateDetection mode) {
+            closed = mode == DuplicateDetection.GRAPH ? null : new ClosedSet(mode);
+            add(root);
+            depths[0] = 0;
+            layerEnd = 1;
         }
-        return null;
-    }
 
-    private static void bfs(SearchNode n, Queue<SearchNode> q) {
-        ArrayList<State> tempSuccessors = n.getCurState()
-                .genSuccessors(); // generate tempNode's immediate
-        // successors
+        SearchNode root() {
+            return nodes.get(0);
+        }
 
         /*
-         * Loop through the successors, wrap them in a SearchNode, check
-         * if they've already been evaluated, and if not, add them to
-         * the queue
+         * Queues a node of the next layer.
+         *
+         * @return false if it was dropped as a repeat
          */
-        for (int i = 0; i < tempSuccessors.size(); i++) {
-            // second parameter here adds the cost of the new node to
-            // the current cost total in the SearchNode
-            SearchNode newNode = new SearchNode(n,
-                    tempSuccessors.get(i), n.getCost()
-                    + tempSuccessors.get(i).findCost(), 0);
-
-            if (!checkRepeats(newNode)) {
-                q.add(newNode);
+        boolean add(SearchNode n) {
+            long key = ClosedSet.keyOf(n.getCurState());
+            long hi = ClosedSet.keyHiOf(n.getCurState());
+            boolean known = index.containsKey(key, hi);
+            if (closed == null ? known : closed.isDuplicate(n)) {
+                return false;
+            }
+            int position = nodes.size();
+            if (position == depths.length) {
+                depths = Arrays.copyOf(depths, position * 2);
+            }
+            nodes.add(n);
+            depths[position] = depth + 1;
+            if (!known) {
+                index.put(key, hi, position);
             }
+            return true;
         }
-    }
 
-    // The goal state has been found. Print the path it took to get to
-    // it.
-    private static void success(SearchNode node, int searchCount) {
-        // Use a stack to track the path from the starting state to the
-        // goal state
-        Stack<SearchNode> solutionPath = new Stack<SearchNode>();
-        solutionPath.push(node);
-        node = node.getParent();
-
-        while (node.getParent() != null) {
-            solutionPath.push(node);
-            node = node.getParent();
+        /*
+         * @return the position of the shallowest node on the board of the key
+         * (key, hi), -1 if this direction has not reached it
+         */
+        int indexOf(long key, long hi) {
+            return index.get(key, hi, -1);
         }
-        solutionPath.push(node);
 
-        // The size of the stack before looping through and emptying it.
-        int loopSize = solutionPath.size();
-
-        for (int i = 0; i < loopSize; i++) {
-            node = solutionPath.pop();
-            node.getCurState().printState();
-            System.out.println();
-            System.out.println();
+        void nextLayer() {
+            layerStart = layerEnd;
+            layerEnd = nodes.size();
+            depth++;
         }
-        System.out.println("The cost was: " + node.getCost());
-    }
-
-    private static void performSearch(Queue<SearchNode> fq,
-                                      Queue<SearchNode> bq) {
-        int searchCount = 1;
-
-        while (!fq.isEmpty() && !bq.isEmpty()) {
-
-            if (!fq.isEmpty()) {
-
-                SearchNode tempNode = fq.poll();
-                SearchNode nodeExistOnBackwardQueue = queueContainsNode(bq, tempNode);
-                if (tempNode.getCurState().isGoal() || nodeExistOnBackwardQueue != null) {
-                    if (nodeExistOnBackwardQueue != null) {
-                        success(nodeExistOnBackwardQueue, searchCount);
-                    }
-                    success(tempNode, searchCount);
-                    System.exit(0);
-                } else {
-                    bfs(tempNode, fq);
-                    searchCount++;
-                }
-
-            }
-
-            if (!bq.isEmpty()) {
-
-                SearchNode tempNode = bq.poll();
-                SearchNode nodeExistOnForwardQueue = queueContainsNode(fq, tempNode);
-                if (isInitialState(tempNode.getCurState()) || nodeExistOnForwardQueue != null) {
-                    success(tempNode, searchCount);
-                    if (nodeExistOnForwardQueue != null) {
-                        success(nodeExistOnForwardQueue, searchCount);
-                    }
-                    System.exit(0);
-                } else {
-                    bfs(tempNode, bq);
-                    searchCount++;
-                }
-            }
 
+        int layerSize() {
+            return layerEnd - layerStart;
         }
 
+        boolean isExhausted() {
+            return layerStart == layerEnd;
+        }
     }
 }
@@ -1,9 +1,11 @@
 package ir.alizeyn;
 
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Queue;
-import java.util.Stack;
 
 /**
  * Defines a Bredth-First search to be performed on a qualifying puzzle.
@@ -13,42 +15,70 @@ import java.util.Stack;
  */
 public class BFSearch {
 
-    public static void search(int[] board) {
-        SearchNode root = new SearchNode(new EightPuzzleState(board));
-        Queue<SearchNode> queue = new LinkedList<SearchNode>();
+    // the engine named in checkpoint snapshots
+    private static final String CHECKPOINT_ENGINE = "BFS";
 
-        queue.add(root);
+    public static SearchResult search(int[] board) {
+        return search(board, DuplicateDetection.GRAPH);
+    }
 
-        performSearch(queue);
+    /**
+     * Initialization function for 8puzzle BFSearch
+     *
+     * @param board - The starting state, represented as a linear array of length
+     *              9 forming 3 meta-rows.
+     * @param mode  - how repeated boards are detected
+     */
+    public static SearchResult search(int[] board, DuplicateDetection mode) {
+        return search(new EightPuzzleState(board), mode);
     }
 
-    /*
-     * Helper method to check to see if a SearchNode has already been evaluated.
-     * Returns true if it has, false if it hasn't.
+    /**
+     * Initialization function for BFSearch on any puzzle. A sliding tile
+     * board that fits a single word searched in GRAPH mode goes through
+     * {@link #searchPooled(TileState)}.
+     *
+     * @param start - The starting state
+     * @param mode  - how repeated boards are detected
      */
-    private static boolean checkRepeats(SearchNode n) {
-        boolean retValue = false;
-        SearchNode checkNode = n;
-
-        // While n's parent isn't null, check to see if it's equal to the node
-        // we're looking for.
-        while (n.getParent() != null && !retValue) {
-            if (n.getParent().getCurState().equals(checkNode.getCurState())) {
-                retValue = true;
-            }
-            n = n.getParent();
+    public static SearchResult search(State start, DuplicateDetection mode) {
+        return search(start, mode, null);
+    }
+
+    /**
+     * Initialization function for BFSearch on any puzzle, taking snapshots
+     * on the way. Only the pooled search takes them, the checkpoint is not
+     * used otherwise.
+     *
+     * @param start      - The starting state
+     * @param mode       - how repeated boards are detected
+     * @param checkpoint - where snapshots go and are resumed from, or null
+     */
+    public static SearchResult search(State start, DuplicateDetection mode, Checkpoint checkpoint) {
+        if (mode == DuplicateDetection.GRAPH && start instanceof TileState
+                && !PuzzleGeometry.forWidth(((TileState) start).getWidth()).isWide()) {
+            return searchPooled((TileState) start, checkpoint);
         }
+        SearchNode root = new SearchNode(start);
+        Queue<SearchNode> queue = new LinkedList<SearchNode>();
+        ClosedSet closed = new ClosedSet(mode);
 
-        return retValue;
+        closed.isDuplicate(root);
+        queue.add(root);
+
+        return performSearch(queue, closed);
     }
 
     /**
      * Performs a BFSearch using q as the search space
      *
-     * @param q - A SearchNode queue to be populated and searched
+     * @param q      - A SearchNode queue to be populated and searched
+     * @param closed - the repeat detection shared by the whole search
+     * @return the path to the goal and the search statistics
      */
-    public static void performSearch(Queue<SearchNode> q) {
-        int searchCount = 1; // counter for number of iterations
+    public static SearchResult performSearch(Queue<SearchNode> q, ClosedSet closed) {
+        SearchStatistics stats = new SearchStatistics("BFS");
+        stats.openSize(q.size());
 
         while (!q.isEmpty()) // while the queue is not empty
         {
@@ -71,45 +101,120 @@ public class BFSearch {
                     // the current cost total in the SearchNode
                     SearchNode newNode = new SearchNode(tempNode,
                             tempSuccessors.get(i), tempNode.getCost()
-                            + tempSuccessors.get(i).findCost(), 0);
+                            + (int) tempSuccessors.get(i).findCost(), 0);
+                    stats.generated();
 
-                    if (!checkRepeats(newNode)) {
+                    if (!closed.isDuplicate(newNode)) {
                         q.add(newNode);
+                    } else {
+                        stats.duplicate();
                     }
                 }
-                searchCount++;
+                stats.expanded();
+                stats.openSize(q.size());
+                stats.closedSize(closed.size());
             } else
-            // The goal state has been found. Print the path it took to get to
-            // it.
+            // The goal state has been found, report the path it took to get
+            // to it.
             {
-                // Use a stack to track the path from the starting state to the
-                // goal state
-                Stack<SearchNode> solutionPath = new Stack<SearchNode>();
-                solutionPath.push(tempNode);
-                tempNode = tempNode.getParent();
-
-                while (tempNode.getParent() != null) {
-                    solutionPath.push(tempNode);
-                    tempNode = tempNode.getParent();
-                }
-                solutionPath.push(tempNode);
+                // fewest moves, only the cheapest path if every move costs 1
+                return SearchResult.found(tempNode, SearchResult.unitCost(tempNode.getCurState()), stats);
+            }
+        }
+
+        return SearchResult.notFound(stats);
+    }
 
-                // The size of the stack before looping through and emptying it.
-                int loopSize = solutionPath.size();
+    /**
+     * BFSearch over a {@link NodePool} instead of SearchNode objects. Nodes
+     * are added to the pool in the order they are queued, so the pool is the
+     * queue and its head is the next handle to expand. Successors come in
+     * the same order as from genSuccessors(), so the same path is found.
+     *
+     * @param start - The starting state, its board fitting a single word
+     */
+    public static SearchResult searchPooled(TileState start) {
+        return searchPooled(start, null);
+    }
 
-                for (int i = 0; i < loopSize; i++) {
-                    tempNode = solutionPath.pop();
-                    tempNode.getCurState().printState();
-                    System.out.println();
-                    System.out.println();
+    /**
+     * Pooled BFSearch taking snapshots on the way. A snapshot holds the pool
+     * and its head; the closed set is every board in the pool, so it is
+     * rebuilt from it on resume.
+     *
+     * @param start      - The starting state, its board fitting a single word
+     * @param checkpoint - where snapshots go and are resumed from, or null
+     */
+    public static SearchResult searchPooled(TileState start, Checkpoint checkpoint) {
+        SearchStatistics stats = new SearchStatistics("BFS");
+        PuzzleGeometry geometry = PuzzleGeometry.forWidth(start.getWidth());
+        boolean eight = start instanceof EightPuzzleState;
+        long goal = geometry.getGoalLo();
+        NodePool pool;
+        LongHashSet closed = new LongHashSet(1 << 16);
+        int head = 0;
+
+        DataInputStream snapshot = checkpoint == null ? null : checkpoint.resume(CHECKPOINT_ENGINE, start);
+        if (snapshot != null) {
+            try {
+                pool = NodePool.readFrom(snapshot);
+                head = snapshot.readInt();
+                snapshot.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            for (int n = 0; n < pool.size(); n++) {
+                closed.add(pool.board(n));
+            }
+        } else {
+            pool = new NodePool();
+            long root = start.key();
+            pool.add(root, NodePool.NONE, 0, 0, NodePool.NONE);
+            closed.add(root);
+        }
+        stats.openSize(pool.size() - head);
+
+        for (; head < pool.size(); head++) {
+            long board = pool.board(head);
+            if (board == goal) {
+                if (checkpoint != null) {
+                    checkpoint.finish();
                 }
-                System.out.println("The cost was: " + tempNode.getCost());
+                return SearchResult.found(pool.path(head, start), !eight, stats);
+            }
 
-                System.exit(0);
+            int hole = geometry.holeOf(board);
+            int g = pool.g(head);
+            for (int from : geometry.getMoves(hole)) {
+                stats.generated();
+                // moving the tile back where it came from only undoes the last move
+                if (from == pool.move(head)) {
+                    stats.duplicate();
+                    continue;
+                }
+                long child = geometry.slide(board, hole, from);
+                if (closed.add(child)) {
+                    int cost = eight ? EightPuzzleState.findCost(child) : 1;
+                    pool.add(child, head, g + cost, 0, hole);
+                } else {
+                    stats.duplicate();
+                }
+            }
+            stats.expanded();
+            stats.openSize(pool.size() - head - 1);
+            stats.closedSize(closed.size());
+
+            if (checkpoint != null && checkpoint.isDue()) {
+                Checkpoint.Snapshot out = checkpoint.begin(CHECKPOINT_ENGINE, start);
+                pool.writeTo(out);
+                out.putInt(head + 1);
+                checkpoint.save(out);
             }
         }
 
-        // This should never happen with our current puzzles.
-        System.out.println("Error! No solution found!");
+        if (checkpoint != null) {
+            checkpoint.finish();
+        }
+        return SearchResult.notFound(stats);
     }
 }
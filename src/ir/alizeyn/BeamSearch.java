@@ -0,0 +1,203 @@
+package ir.alizeyn;
+
+import java.util.ArrayList;
+
+/**
+ * Defines two searches for the sliding tile puzzles whose frontier never
+ * holds more than a given width of nodes, trading optimality for memory and
+ * time that stay nearly constant from one board to the next.
+ * <p>
+ * Beam search goes breadth first, one layer per move, but only the width
+ * nodes of lowest h(n) among the successors of a layer make the next layer.
+ * The candidates sit in a {@link LongMinMaxHeap} of the width, each entry
+ * packing h(n) above the slot of its node, and once it is full a better
+ * candidate takes the slot of the worst. A board is generated at most once
+ * per layer, and boards of the layer before the expanded one are dropped,
+ * those being where the moves back lead; the board graph is bipartite, so no
+ * move leads to a board of the same layer. Layer keys are held in hash sets
+ * reused from layer to layer.
+ * <p>
+ * Greedy best-first search always expands the open node of lowest Manhattan
+ * distance, ignoring g(n). Its open list is a heap of the width, the node of
+ * highest h(n) being dropped to make room. Boards are expanded at most once.
+ * <p>
+ * Both test for the goal when a board is generated and return the first
+ * solution they find, which is not guaranteed to be optimal. They may also
+ * find none: the beam dies out, or runs past DEPTH_LIMIT layers, and greedy
+ * search runs out of open nodes. Layers are counted in moves.
+ */
+public class BeamSearch {
+
+    /**
+     * Width used by ProblemSolver, overridable with -Dbeam.width.
+     */
+    public static final String WIDTH_PROPERTY = "beam.width";
+
+    public static final int DEFAULT_WIDTH = 1000;
+
+    /**
+     * Layers a beam search goes through before it gives up.
+     */
+    public static final int DEPTH_LIMIT = 10000;
+
+    /**
+     * Initialization function for 8puzzle beam search with the Manhattan
+     * distance and the default width
+     *
+     * @param board - The starting state, represented as a linear array of length
+     *              9 forming 3 meta-rows.
+     */
+    public static SearchResult search(int[] board) {
+        return search(new EightPuzzleState(board), null, DEFAULT_WIDTH);
+    }
+
+    /**
+     * Initialization function for beam search on any sliding tile puzzle
+     *
+     * @param start - The starting state
+     * @param pdb   - pattern databases for the start's width, or null to use
+     *              the Manhattan distance
+     * @param width - the most nodes kept per layer, at least 1
+     */
+    public static SearchResult search(TileState start, AdditivePatternDatabase pdb, int width) {
+        SearchStatistics stats = new SearchStatistics("Beam");
+        LongMinMaxHeap candidates = new LongMinMaxHeap(width);
+        if (start.isGoal()) {
+            return SearchResult.found(new SearchNode(start), false, stats);
+        }
+
+        SearchNode[] layer = new SearchNode[width];
+        SearchNode[] next = new SearchNode[width];
+        layer[0] = new SearchNode(start);
+        int layerSize = 1;
+        // keys of the layer before the expanded one, of the expanded one and
+        // of the one being built
+        LongHashSet before = new LongHashSet(width * 4);
+        LongHashSet expanded = new LongHashSet(width * 4);
+        LongHashSet building = new LongHashSet(width * 4);
+        expanded.add(start.key(), start.keyHi());
+
+        for (int depth = 1; layerSize > 0 && depth <= DEPTH_LIMIT; depth++) {
+            candidates.clear();
+            for (int i = 0; i < layerSize; i++) {
+                SearchNode n = layer[i];
+                ArrayList<State> successors = n.getCurState().genSuccessors();
+                for (int j = 0; j < successors.size(); j++) {
+                    TileState successor = (TileState) successors.get(j);
+                    stats.generated();
+                    long key = successor.key();
+                    long hi = successor.keyHi();
+                    if (before.contains(key, hi) || !building.add(key, hi)) {
+                        stats.duplicate();
+                        continue;
+                    }
+                    if (successor.isGoal()) {
+                        stats.expanded();
+                        return SearchResult.found(new SearchNode(n, successor, depth, 0), false, stats);
+                    }
+
+                    long t = stats.heuristicStart();
+                    int h = pdb == null ? successor.getManDist() : pdb.h(successor);
+                    stats.heuristicDone(t);
+                    int slot;
+                    if (!candidates.isFull()) {
+                        slot = candidates.size();
+                    } else if (h < (int) (candidates.peekMax() >>> 32)) {
+                        slot = (int) candidates.pollMax();
+                    } else {
+                        continue;
+                    }
+                    next[slot] = new SearchNode(n, successor, depth, h);
+                    candidates.add((long) h << 32 | slot);
+                }
+                stats.expanded();
+            }
+            stats.openSize(candidates.size());
+            stats.closedSize(before.size() + expanded.size() + building.size());
+
+            SearchNode[] swap = layer;
+            layer = next;
+            next = swap;
+            layerSize = candidates.size();
+
+            LongHashSet cleared = before;
+            cleared.clear();
+            before = expanded;
+            expanded = building;
+            building = cleared;
+        }
+        return SearchResult.notFound(stats);
+    }
+
+    /**
+     * Greedy best-first search on any sliding tile puzzle with the Manhattan
+     * distance
+     *
+     * @param start - The starting state
+     * @param width - the most nodes kept open, at least 1
+     */
+    public static SearchResult greedy(TileState start, int width) {
+        SearchStatistics stats = new SearchStatistics("Greedy");
+        LongMinMaxHeap open = new LongMinMaxHeap(width);
+        if (start.isGoal()) {
+            return SearchResult.found(new SearchNode(start), false, stats);
+        }
+
+        SearchNode[] slots = new SearchNode[width];
+        // slots not held by an open node, as a stack
+        int[] free = new int[width];
+        int freeCount = width;
+        for (int i = 0; i < width; i++) {
+            free[i] = width - 1 - i;
+        }
+        LongHashSet closed = new LongHashSet(1 << 16);
+
+        int slot = free[--freeCount];
+        slots[slot] = new SearchNode(null, start, 0, start.getManDist());
+        open.add((long) slots[slot].getHCost() << 32 | slot);
+
+        while (!open.isEmpty()) {
+            slot = (int) open.pollMin();
+            SearchNode n = slots[slot];
+            slots[slot] = null;
+            free[freeCount++] = slot;
+            if (!closed.add(ClosedSet.keyOf(n.getCurState()), ClosedSet.keyHiOf(n.getCurState()))) {
+                stats.duplicate();
+                continue;
+            }
+
+            ArrayList<State> successors = n.getCurState().genSuccessors();
+            for (int i = 0; i < successors.size(); i++) {
+                TileState successor = (TileState) successors.get(i);
+                stats.generated();
+                if (closed.contains(successor.key(), successor.keyHi())) {
+                    stats.duplicate();
+                    continue;
+                }
+                if (successor.isGoal()) {
+                    stats.expanded();
+                    return SearchResult.found(new SearchNode(n, successor, n.getCost() + 1, 0), false, stats);
+                }
+
+                long t = stats.heuristicStart();
+                int h = successor.getManDist();
+                stats.heuristicDone(t);
+                if (open.isFull()) {
+                    if (h >= (int) (open.peekMax() >>> 32)) {
+                        continue;
+                    }
+                    int evicted = (int) open.pollMax();
+                    slots[evicted] = null;
+                    free[freeCount++] = evicted;
+                }
+                int s = free[--freeCount];
+                slots[s] = new SearchNode(n, successor, n.getCost() + 1, h);
+                open.add((long) h << 32 | s);
+            }
+            stats.expanded();
+            stats.openSize(open.size());
+            stats.closedSize(closed.size());
+        }
+        return SearchResult.notFound(stats);
+    }
+}
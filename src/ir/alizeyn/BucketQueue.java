@@ -0,0 +1,141 @@
+package ir.alizeyn;
+
+/**
+ * Two level bucket queue for best-first search with small integer costs.
+ * Entries are filed under their f(n) and, inside an f bucket, under their
+ * g(n). {@link #pop()} returns an entry with the lowest f, breaking ties
+ * toward the highest g, which is the deepest node and usually the closest to
+ * the goal. Entries within one (f, g) bucket come out last in, first out.
+ * <p>
+ * Push is O(1). Pop is O(1) amortized: the cursors over f and g only move
+ * past buckets that are empty, and only move back when an entry is pushed
+ * below them. No comparator is ever called.
+ *
+ * @param <E> the type of entry, usually SearchNode
+ */
+public class BucketQueue<E> {
+
+    private Object[][][] buckets = new Object[64][][];
+    private int[][] bucketSizes = new int[64][];
+    private int[] fCounts = new int[64];
+    private int[] maxG = new int[64];
+
+    private int minF = Integer.MAX_VALUE;
+    private int size;
+
+    /**
+     * Adds e under the given costs.
+     *
+     * @param f - f(n) = g(n) + h(n), must not be negative
+     * @param g - g(n), must not be negative
+     */
+    public void push(E e, int f, int g) {
+        if (f >= fCounts.length) {
+            growF(f + 1);
+        }
+        Object[][] byG = buckets[f];
+        int[] sizes = bucketSizes[f];
+        if (byG == null || g >= byG.length) {
+            int length = Math.max(g + 1, byG == null ? 8 : byG.length * 2);
+            Object[][] newByG = new Object[length][];
+            int[] newSizes = new int[length];
+            if (byG != null) {
+                System.arraycopy(byG, 0, newByG, 0, byG.length);
+                System.arraycopy(sizes, 0, newSizes, 0, sizes.length);
+            }
+            buckets[f] = byG = newByG;
+            bucketSizes[f] = sizes = newSizes;
+        }
+        Object[] bucket = byG[g];
+        int n = sizes[g];
+        if (bucket == null) {
+            byG[g] = bucket = new Object[16];
+        } else if (n == bucket.length) {
+            Object[] grown = new Object[n * 2];
+            System.arraycopy(bucket, 0, grown, 0, n);
+            byG[g] = bucket = grown;
+        }
+        bucket[n] = e;
+        sizes[g] = n + 1;
+
+        if (fCounts[f]++ == 0 || g > maxG[f]) {
+            maxG[f] = g;
+        }
+        if (f < minF) {
+            minF = f;
+        }
+        size++;
+    }
+
+    /**
+     * Removes and returns an entry with the lowest f and, among those, the
+     * highest g.
+     *
+     * @return the entry, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E pop() {
+        if (size == 0) {
+            return null;
+        }
+        while (fCounts[minF] == 0) {
+            minF++;
+        }
+        int f = minF;
+        int[] sizes = bucketSizes[f];
+        int g = maxG[f];
+        while (sizes[g] == 0) {
+            g--;
+        }
+        maxG[f] = g;
+
+        Object[] bucket = buckets[f][g];
+        int n = --sizes[g];
+        E e = (E) bucket[n];
+        bucket[n] = null;
+
+        fCounts[f]--;
+        size--;
+        if (size == 0) {
+            minF = Integer.MAX_VALUE;
+        }
+        return e;
+    }
+
+    /**
+     * @return the lowest f held in the queue, Integer.MAX_VALUE if empty
+     */
+    public int peekF() {
+        if (size == 0) {
+            return Integer.MAX_VALUE;
+        }
+        while (fCounts[minF] == 0) {
+            minF++;
+        }
+        return minF;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void growF(int needed) {
+        int length = Math.max(needed, fCounts.length * 2);
+        Object[][][] newBuckets = new Object[length][][];
+        int[][] newSizes = new int[length][];
+        int[] newCounts = new int[length];
+        int[] newMaxG = new int[length];
+        System.arraycopy(buckets, 0, newBuckets, 0, buckets.length);
+        System.arraycopy(bucketSizes, 0, newSizes, 0, bucketSizes.length);
+        System.arraycopy(fCounts, 0, newCounts, 0, fCounts.length);
+        System.arraycopy(maxG, 0, newMaxG, 0, maxG.length);
+        buckets = newBuckets;
+        bucketSizes = newSizes;
+        fCounts = newCounts;
+        maxG = newMaxG;
+    }
+}
@@ -0,0 +1,301 @@
+package ir.alizeyn;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Periodic snapshots of a long running search, so that a search stopped part
+ * way can be resumed where the last snapshot left it. An engine asks
+ * {@link #isDue()} as it goes, which only looks at the clock every few
+ * thousand calls; when a snapshot is due it copies its state into a
+ * {@link Snapshot} and hands it to {@link #save(Snapshot)}. The file is
+ * written by a background thread, through a temporary file moved into place,
+ * so the search never waits on the disk and a reader never sees a partial
+ * snapshot. A snapshot falling due while the previous one is still being
+ * written is skipped.
+ * <p>
+ * A snapshot starts with the engine, its settings and the starting board,
+ * and {@link #resume(String, TileState)} only hands back one taken by the
+ * same search. The file is removed once the search completes.
+ */
+public class Checkpoint {
+
+    /**
+     * Snapshot file used by ProblemSolver, checkpoints are off if unset.
+     */
+    public static final String FILE_PROPERTY = "checkpoint.file";
+
+    /**
+     * Seconds between two snapshots, overridable with -Dcheckpoint.seconds.
+     */
+    public static final String INTERVAL_PROPERTY = "checkpoint.seconds";
+
+    public static final int DEFAULT_INTERVAL = 300;
+
+    private static final int MAGIC = 0x434B5031; // "CKP1"
+
+    // calls to isDue() between two looks at the clock
+    private static final int CHECK_EVERY = 4096;
+
+    private final Path file;
+    private final long intervalNanos;
+    private final ExecutorService writer;
+    private long due;
+    private int calls;
+    private Future<?> pending;
+
+    /**
+     * @param file            - where snapshots are written
+     * @param intervalSeconds - seconds between two snapshots
+     */
+    public Checkpoint(Path file, int intervalSeconds) {
+        this.file = file;
+        this.intervalNanos = intervalSeconds * 1000000000L;
+        this.due = System.nanoTime() + intervalNanos;
+        this.writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "checkpoint-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @return the checkpoint set by -Dcheckpoint.file and
+     * -Dcheckpoint.seconds, null if there is none
+     */
+    public static Checkpoint fromProperties() {
+        String file = System.getProperty(FILE_PROPERTY);
+        if (file == null) {
+            return null;
+        }
+        return new Checkpoint(Paths.get(file), Integer.getInteger(INTERVAL_PROPERTY, DEFAULT_INTERVAL));
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return whether the engine should take a snapshot now
+     */
+    public boolean isDue() {
+        if (++calls < CHECK_EVERY) {
+            return false;
+        }
+        calls = 0;
+        return System.nanoTime() >= due && (pending == null || pending.isDone());
+    }
+
+    /**
+     * Starts a snapshot, writing its header.
+     *
+     * @param engine - the engine and the settings the snapshot depends on
+     * @param start  - the starting state of the search
+     */
+    public Snapshot begin(String engine, TileState start) {
+        Snapshot snapshot = new Snapshot();
+        snapshot.putInt(MAGIC);
+        byte[] name = engine.getBytes(StandardCharsets.UTF_8);
+        snapshot.putInt(name.length);
+        for (byte b : name) {
+            snapshot.putByte(b);
+        }
+        int size = start.getWidth() * start.getWidth();
+        snapshot.putInt(size);
+        for (int cell = 0; cell < size; cell++) {
+            snapshot.putByte(start.getTile(cell));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Hands a snapshot to the writer thread and returns at once. A failure
+     * of the previous write is thrown here.
+     */
+    public void save(final Snapshot snapshot) {
+        rethrowFailure();
+        due = System.nanoTime() + intervalNanos;
+        pending = writer.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                write(snapshot.buffers());
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Opens the snapshot left by an earlier run of the same search.
+     *
+     * @param engine - the engine and settings, as given to begin()
+     * @param start  - the starting state of the search
+     * @return the body of the snapshot, or null if there is no snapshot of
+     * this search
+     */
+    public DataInputStream resume(String engine, TileState start) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ)), 1 << 16));
+            if (!sameSearch(in, engine, start)) {
+                in.close();
+                return null;
+            }
+            return in;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Waits for the write in flight, removes the snapshot and stops the
+     * writer thread. Called by the engine when the search completes.
+     */
+    public void finish() {
+        rethrowFailure();
+        writer.shutdown();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean sameSearch(DataInputStream in, String engine, TileState start) throws IOException {
+        if (in.readInt() != MAGIC) {
+            return false;
+        }
+        int length = in.readInt();
+        if (length < 0 || length > 256) {
+            return false;
+        }
+        byte[] name = new byte[length];
+        in.readFully(name);
+        if (!engine.equals(new String(name, StandardCharsets.UTF_8))) {
+            return false;
+        }
+        int size = in.readInt();
+        if (size != start.getWidth() * start.getWidth()) {
+            return false;
+        }
+        boolean same = true;
+        for (int cell = 0; cell < size; cell++) {
+            same &= in.readByte() == start.getTile(cell);
+        }
+        return same;
+    }
+
+    private void write(ByteBuffer[] buffers) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                long remaining = 0;
+                for (ByteBuffer buffer : buffers) {
+                    remaining += buffer.remaining();
+                }
+                while (remaining > 0) {
+                    remaining -= channel.write(buffers);
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    /*
+     * Waits for the write in flight and throws its failure, if any.
+     */
+    private void rethrowFailure() {
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            throw new IllegalStateException("Checkpoint write failed", cause);
+        } finally {
+            pending = null;
+        }
+    }
+
+    /**
+     * The state of a search copied out for writing, kept in chunks so it
+     * can outgrow a single buffer.
+     */
+    public static final class Snapshot {
+        private static final int CHUNK = 1 << 20;
+
+        private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+        private ByteBuffer current;
+
+        private Snapshot() {
+        }
+
+        public void putByte(int value) {
+            room(1).put((byte) value);
+        }
+
+        public void putShort(int value) {
+            room(2).putShort((short) value);
+        }
+
+        public void putInt(int value) {
+            room(4).putInt(value);
+        }
+
+        public void putLong(long value) {
+            room(8).putLong(value);
+        }
+
+        private ByteBuffer room(int bytes) {
+            if (current == null || current.remaining() < bytes) {
+                current = ByteBuffer.allocate(CHUNK);
+                chunks.add(current);
+            }
+            return current;
+        }
+
+        private ByteBuffer[] buffers() {
+            ByteBuffer[] buffers = new ByteBuffer[chunks.size()];
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = chunks.get(i).flip();
+            }
+            return buffers;
+        }
+    }
+}
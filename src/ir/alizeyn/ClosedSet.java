@@ -0,0 +1,69 @@
+package ir.alizeyn;
+
+/**
+ * Shared repeat detection for the search engines, replacing the per engine
+ * checkRepeats helpers. Boards are compared by their packed key, so checking a
+ * node never calls equals(State) and, in GRAPH mode, never walks the parent
+ * chain.
+ */
+public class ClosedSet {
+
+    private final DuplicateDetection mode;
+    private final LongHashSet seen;
+
+    public ClosedSet(DuplicateDetection mode) {
+        this.mode = mode;
+        this.seen = mode == DuplicateDetection.GRAPH ? new LongHashSet(1 << 16) : null;
+    }
+
+    /**
+     * Checks whether n is a repeat under this set's mode. In GRAPH mode the
+     * board of n is recorded as seen, so the root has to be passed through
+     * here as well.
+     *
+     * @param n - a freshly generated node
+     * @return true if n should be dropped
+     */
+    public boolean isDuplicate(SearchNode n) {
+        switch (mode) {
+            case GRAPH:
+                return !seen.add(keyOf(n.getCurState()), keyHiOf(n.getCurState()));
+            case PATH:
+                long key = keyOf(n.getCurState());
+                long hi = keyHiOf(n.getCurState());
+                for (SearchNode p = n.getParent(); p != null; p = p.getParent()) {
+                    if (keyOf(p.getCurState()) == key && keyHiOf(p.getCurState()) == hi) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return the number of boards recorded, 0 unless in GRAPH mode
+     */
+    public int size() {
+        return seen == null ? 0 : seen.size();
+    }
+
+    public DuplicateDetection getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the primitive key identifying the board of s
+     */
+    static long keyOf(State s) {
+        return ((TileState) s).key();
+    }
+
+    /**
+     * @return the second word of the key of s, see {@link TileState#keyHi()}
+     */
+    static long keyHiOf(State s) {
+        return ((TileState) s).keyHi();
+    }
+}
@@ -18,37 +18,43 @@ public class DFSearch
 	 *            - The starting state, represented as a linear array of length
 	 *            9 forming 3 meta-rows.
 	 */
-	public static void search(int[] board)
+	public static SearchResult search(int[] board)
 	{
-		SearchNode root = new SearchNode(new EightPuzzleState(board));
-		Stack<SearchNode> stack = new Stack<SearchNode>();
-
-		stack.add(root);
+		return search(board, DuplicateDetection.GRAPH);
+	}
 
-		performSearch(stack);
+	/**
+	 * Initialization function for 8puzzle DFSearch
+	 * 
+	 * @param board
+	 *            - The starting state, represented as a linear array of length
+	 *            9 forming 3 meta-rows.
+	 * @param mode
+	 *            - how repeated boards are detected
+	 */
+	public static SearchResult search(int[] board, DuplicateDetection mode)
+	{
+		return search(new EightPuzzleState(board), mode);
 	}
 
-	/*
-	 * Helper method to check to see if a SearchNode has already been evaluated.
-	 * Returns true if it has, false if it hasn't.
+	/**
+	 * Initialization function for DFSearch on any puzzle
+	 * 
+	 * @param start
+	 *            - The starting state
+	 * @param mode
+	 *            - how repeated boards are detected
 	 */
-	private static boolean checkRepeats(SearchNode n)
+	public static SearchResult search(State start, DuplicateDetection mode)
 	{
-		boolean retValue = false;
-		SearchNode checkNode = n;
+		SearchNode root = new SearchNode(start);
+		Stack<SearchNode> stack = new Stack<SearchNode>();
+		ClosedSet closed = new ClosedSet(mode);
 
-		// While n's parent isn't null, check to see if it's equal to the node
-		// we're looking for.
-		while (n.getParent() != null && !retValue)
-		{
-			if (n.getParent().getCurState().equals(checkNode.getCurState()))
-			{
-				retValue = true;
-			}
-			n = n.getParent();
-		}
+		closed.isDuplicate(root);
+		stack.add(root);
 
-		return retValue;
+		return performSearch(stack, closed);
 	}
 
 	/**
@@ -56,10 +62,14 @@ public class DFSearch
 	 * 
 	 * @param s
 	 *            - A SearchNode queue to be populated and searched
+	 * @param closed
+	 *            - the repeat detection shared by the whole search
+	 * @return the path to the goal and the search statistics
 	 */
-	public static void performSearch(Stack<SearchNode> s)
+	public static SearchResult performSearch(Stack<SearchNode> s, ClosedSet closed)
 	{
-		int searchCount = 1; // counter for number of iterations
+		SearchStatistics stats = new SearchStatistics("DFS");
+		stats.openSize(s.size());
 
 		while (!s.isEmpty()) // while the queue is not empty
 		{
@@ -81,48 +91,30 @@ public class DFSearch
 				{
 					// second parameter here adds the cost of the new node to
 					// the current cost total in the SearchNode
-					SearchNode newNode = new SearchNode(tempNode, tempSuccessors.get(i), tempNode.getCost() + tempSuccessors.get(i).findCost(), 0);
+					SearchNode newNode = new SearchNode(tempNode, tempSuccessors.get(i), tempNode.getCost() + (int) tempSuccessors.get(i).findCost(), 0);
+					stats.generated();
 
-					if (!checkRepeats(newNode))
+					if (!closed.isDuplicate(newNode))
 					{
 						s.add(newNode);
 					}
+					else
+					{
+						stats.duplicate();
+					}
 				}
-				searchCount++;
+				stats.expanded();
+				stats.openSize(s.size());
+				stats.closedSize(closed.size());
 			}
 			else
-			// The goal state has been found. Print the path it took to get to
-			// it.
+			// The goal state has been found, report the path it took to get
+			// to it.
 			{
-				// Use a stack to track the path from the starting state to the
-				// goal state
-				Stack<SearchNode> solutionPath = new Stack<SearchNode>();
-				solutionPath.push(tempNode);
-				tempNode = tempNode.getParent();
-
-				while (tempNode.getParent() != null)
-				{
-					solutionPath.push(tempNode);
-					tempNode = tempNode.getParent();
-				}
-				solutionPath.push(tempNode);
-
-				// The size of the stack before looping through and emptying it.
-				int loopSize = solutionPath.size();
-
-				for (int i = 0; i < loopSize; i++)
-				{
-					tempNode = solutionPath.pop();
-					tempNode.getCurState().printState();
-					System.out.println();
-					System.out.println();
-				}
-				System.out.println("The cost was: " + tempNode.getCost());
-				System.exit(0);
+				return SearchResult.found(tempNode, false, stats);
 			}
 		}
 
-		// This should never happen with our current puzzles.
-		System.out.println("Error! No solution found!");
+		return SearchResult.notFound(stats);
 	}
 }
@@ -0,0 +1,131 @@
+package ir.alizeyn;
+
+/**
+ * Dial's bucket queue for uniform-cost search with small non-negative integer
+ * step costs. Entries are filed in a circular array of buckets indexed by
+ * g(n) modulo the number of buckets. As long as every queued g lies within
+ * one bucket span of the lowest queued g, which holds whenever the span
+ * exceeds the largest step cost, each bucket holds a single g value and
+ * {@link #pop()} only ever walks forward. The span doubles on demand when a
+ * push would break that invariant.
+ * <p>
+ * Push is O(1) and pop is O(1) amortized, with no comparator involved.
+ *
+ * @param <E> the type of entry, usually SearchNode
+ */
+public class DialQueue<E> {
+
+    private Object[][] buckets;
+    private int[] sizes;
+    private int mask;
+
+    // the g of the last popped entry, 0 before the first pop; no queued
+    // entry has a g below it
+    private int cur;
+    private int size;
+
+    public DialQueue() {
+        this(64);
+    }
+
+    /**
+     * @param span - a bound on the largest step cost, rounded up to a power of two
+     */
+    public DialQueue(int span) {
+        int length = Integer.highestOneBit(Math.max(2, span) - 1) << 1;
+        buckets = new Object[length][];
+        sizes = new int[length];
+        mask = length - 1;
+    }
+
+    /**
+     * Adds e under the given g(n).
+     *
+     * @param g - g(n), must not be lower than the g of the last popped entry
+     */
+    public void push(E e, int g) {
+        // cur stays put even on an empty queue: the children of the entry
+        // just popped may come in any order of g
+        if (g < cur) {
+            throw new IllegalArgumentException("g " + g + " is below the queue minimum " + cur);
+        }
+        if (g - cur > mask) {
+            grow(g - cur + 1);
+        }
+        int slot = g & mask;
+        Object[] bucket = buckets[slot];
+        int n = sizes[slot];
+        if (bucket == null) {
+            buckets[slot] = bucket = new Object[16];
+        } else if (n == bucket.length) {
+            Object[] grown = new Object[n * 2];
+            System.arraycopy(bucket, 0, grown, 0, n);
+            buckets[slot] = bucket = grown;
+        }
+        bucket[n] = e;
+        sizes[slot] = n + 1;
+        size++;
+    }
+
+    /**
+     * Removes and returns an entry with the lowest g.
+     *
+     * @return the entry, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E pop() {
+        if (size == 0) {
+            return null;
+        }
+        while (sizes[cur & mask] == 0) {
+            cur++;
+        }
+        int slot = cur & mask;
+        int n = --sizes[slot];
+        E e = (E) buckets[slot][n];
+        buckets[slot][n] = null;
+        size--;
+        return e;
+    }
+
+    /**
+     * @return the lowest g held in the queue, Integer.MAX_VALUE if empty
+     */
+    public int peekG() {
+        if (size == 0) {
+            return Integer.MAX_VALUE;
+        }
+        while (sizes[cur & mask] == 0) {
+            cur++;
+        }
+        return cur;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /*
+     * Widens the span to at least needed buckets. Every bucket holds exactly
+     * one g value, recovered from its slot relative to cur, so entries can be
+     * re-filed without remembering their g.
+     */
+    private void grow(int needed) {
+        int length = Integer.highestOneBit(needed - 1) << 2;
+        Object[][] newBuckets = new Object[length][];
+        int[] newSizes = new int[length];
+        for (int offset = 0; offset <= mask; offset++) {
+            int g = cur + offset;
+            int slot = g & mask;
+            newBuckets[g & (length - 1)] = buckets[slot];
+            newSizes[g & (length - 1)] = sizes[slot];
+        }
+        buckets = newBuckets;
+        sizes = newSizes;
+        mask = length - 1;
+    }
+}
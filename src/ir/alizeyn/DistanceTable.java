@@ -0,0 +1,280 @@
+package ir.alizeyn;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The optimal number of moves of every solvable 8puzzle board, so a query is
+ * answered by table lookups instead of a search.
+ * <p>
+ * A board is indexed by the cell of its hole and the Lehmer code of its tiles
+ * read in cell order, skipping the hole. Two orders of the 8 tiles that differ
+ * only in the last two have codes 2i and 2i+1 and opposite inversion parity,
+ * and only the even ones are solvable, so hole * 8!/2 + code / 2 is a perfect
+ * hash of the 181,440 solvable boards.
+ * <p>
+ * Each entry is 4 bits and holds the distance modulo 16; the longest
+ * solutions take 31 moves. A move changes the distance by exactly one, so
+ * from a board at distance d the neighbour holding (d - 1) mod 16 is always
+ * one move closer, and following such neighbours down to the goal yields an
+ * optimal path with one lookup per neighbour.
+ * <p>
+ * Like {@link PatternDatabase} the table is generated once, by a breadth-first
+ * search backward from the goal, and memory mapped from file afterwards.
+ */
+public class DistanceTable {
+
+    /**
+     * Number of solvable 8puzzle boards, 9! / 2.
+     */
+    public static final int ENTRIES = 181440;
+
+    private static final int MAGIC = 0x44544231; // "DTB1"
+    private static final int HEADER_SIZE = 8;
+    private static final int SIZE = EightPuzzleState.PUZZLE_SIZE;
+
+    // FACTORIAL[i] = i!, the weights of the Lehmer code digits
+    private static final int[] FACTORIAL = new int[SIZE - 1];
+
+    static {
+        FACTORIAL[0] = 1;
+        for (int i = 1; i < SIZE - 1; i++) {
+            FACTORIAL[i] = FACTORIAL[i - 1] * i;
+        }
+    }
+
+    private static DistanceTable defaultTable;
+
+    // two entries per byte, the even index in the low nibble
+    private final ByteBuffer table;
+
+    private DistanceTable(ByteBuffer table) {
+        this.table = table;
+    }
+
+    /**
+     * Opens the table from file, generating and writing it first if the file
+     * does not exist yet.
+     */
+    public static DistanceTable load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            generate().write(file);
+        }
+        return open(file);
+    }
+
+    /**
+     * The table kept next to the pattern databases, in the directory named by
+     * {@link AdditivePatternDatabase#DIR_PROPERTY}.
+     */
+    public static synchronized DistanceTable getDefault() {
+        if (defaultTable == null) {
+            Path dir = Paths.get(System.getProperty(AdditivePatternDatabase.DIR_PROPERTY, "pdb"));
+            try {
+                defaultTable = load(dir.resolve("dist-3x3.bin"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return defaultTable;
+    }
+
+    /**
+     * Maps an existing table file read-only.
+     */
+    public static DistanceTable open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is complete
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC
+                    || header.getInt() != ENTRIES) {
+                throw new IOException("Not an 8puzzle distance table: " + file);
+            }
+            if (channel.size() != HEADER_SIZE + ENTRIES / 2) {
+                throw new IOException("Truncated distance table: " + file);
+            }
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, ENTRIES / 2);
+            return new DistanceTable(table);
+        }
+    }
+
+    /**
+     * Builds the table in memory by a single breadth-first search from the
+     * goal, which reaches every solvable board.
+     */
+    public static DistanceTable generate() {
+        byte[] table = new byte[ENTRIES / 2];
+        long[] seen = new long[(ENTRIES + 63) >>> 6];
+        // every board is queued once, in order of distance
+        long[] queue = new long[ENTRIES];
+        long[] buffer = new long[EightPuzzleState.MAX_SUCCESSORS];
+
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = EightPuzzleState.GOAL_BOARD;
+        mark(seen, index(EightPuzzleState.GOAL_BOARD));
+        int depth = 0;
+        while (head < tail) {
+            int levelEnd = tail;
+            for (; head < levelEnd; head++) {
+                long board = queue[head];
+                int i = index(board);
+                table[i >>> 1] |= (byte) ((depth & 0xF) << ((i & 1) << 2));
+                int n = EightPuzzleState.genSuccessors(board, EightPuzzleState.holeOf(board), buffer);
+                for (int s = 0; s < n; s++) {
+                    if (mark(seen, index(buffer[s]))) {
+                        queue[tail++] = buffer[s];
+                    }
+                }
+            }
+            depth++;
+        }
+        if (tail != ENTRIES) {
+            throw new IllegalStateException("Reached " + tail + " boards instead of " + ENTRIES);
+        }
+        return new DistanceTable(ByteBuffer.wrap(table));
+    }
+
+    /**
+     * Writes the table to file through a temporary file that is then moved
+     * into place and opened up to 0644 where permissions are POSIX, as
+     * {@link PatternDatabase#write(Path)} does.
+     */
+    public void write(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(ENTRIES);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            ByteBuffer data = table.duplicate();
+            data.clear();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+        try {
+            if (tmp.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Files.setPosixFilePermissions(tmp, PosixFilePermissions.fromString("rw-r--r--"));
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    /**
+     * Solves an 8puzzle by walking down the table. Unsolvable boards are
+     * rejected by their inversion parity before any lookup.
+     *
+     * @param start - the starting state, must be an 8puzzle board
+     * @return a solution with the fewest moves, or no solution if the board
+     * is unsolvable. 8puzzle moves cost findCost(), so it is not reported
+     * optimal
+     */
+    public static SearchResult search(TileState start) {
+        return getDefault().solve(start);
+    }
+
+    /**
+     * @see #search(TileState)
+     */
+    public SearchResult solve(TileState start) {
+        if (start.getWidth() != 3) {
+            throw new IllegalArgumentException("The distance table only holds 8puzzle boards");
+        }
+        SearchStatistics stats = new SearchStatistics("Table");
+        long board = start.key();
+        if (!EightPuzzleState.isSolvable(board)) {
+            return SearchResult.notFound(stats);
+        }
+
+        List<State> path = new ArrayList<State>();
+        path.add(start);
+        int hole = EightPuzzleState.holeOf(board);
+        int d = get(index(board));
+        while (board != EightPuzzleState.GOAL_BOARD) {
+            int closer = (d - 1) & 0xF;
+            for (int from : EightPuzzleState.getMoves(hole)) {
+                long child = EightPuzzleState.slide(board, hole, from);
+                stats.generated();
+                if (get(index(child)) == closer) {
+                    board = child;
+                    hole = from;
+                    break;
+                }
+            }
+            stats.expanded();
+            path.add(new EightPuzzleState(board, hole));
+            d = closer;
+        }
+        return SearchResult.found(path, false, stats);
+    }
+
+    /**
+     * @return the optimal number of moves of a solvable board modulo 16
+     */
+    public int distanceMod16(long board) {
+        return get(index(board));
+    }
+
+    /**
+     * Perfect hash of a solvable packed board, see the class comment.
+     *
+     * @return the index of board in 0..ENTRIES-1
+     */
+    public static int index(long board) {
+        int used = 0;
+        int rank = 0;
+        int hole = 0;
+        int k = 0;
+        for (int cell = 0; cell < SIZE; cell++) {
+            int tile = EightPuzzleState.tileAt(board, cell);
+            if (tile == 0) {
+                hole = cell;
+                continue;
+            }
+            // the number of smaller tiles still to come
+            rank += (tile - 1 - Integer.bitCount(used & ((1 << tile) - 1))) * FACTORIAL[SIZE - 2 - k];
+            used |= 1 << tile;
+            k++;
+        }
+        return hole * (ENTRIES / SIZE) + (rank >>> 1);
+    }
+
+    private int get(int index) {
+        return (table.get(index >>> 1) >>> ((index & 1) << 2)) & 0xF;
+    }
+
+    // sets the bit of index, returns true if it was clear
+    private static boolean mark(long[] bits, int index) {
+        long mask = 1L << index;
+        long word = bits[index >>> 6];
+        if ((word & mask) != 0) {
+            return false;
+        }
+        bits[index >>> 6] = word | mask;
+        return true;
+    }
+}
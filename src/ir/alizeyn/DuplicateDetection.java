@@ -0,0 +1,24 @@
+package ir.alizeyn;
+
+/**
+ * How an engine decides that a generated node is a repeat and can be dropped.
+ */
+public enum DuplicateDetection {
+
+    /**
+     * Keep every generated node, repeats included.
+     */
+    OFF,
+
+    /**
+     * Drop a node whose board already appears on its own path from the root.
+     * Catches cycles only, but needs no memory beyond the path itself.
+     */
+    PATH,
+
+    /**
+     * Drop a node whose board has been generated anywhere before. Catches
+     * cycles and transpositions at the price of remembering every board.
+     */
+    GRAPH
+}
@@ -1,7 +1,6 @@
 package ir.alizeyn;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 
 /**
  * EightPuzzleState defines a state for the 8puzzle problem. The board is always
@@ -10,20 +9,97 @@ import java.util.Arrays;
  * terms of the actual tiles, '0' represents the hole in the board, and 0 is
  * treated special when generating successors. We do not treat '0' as a tile
  * itself, it is the "hole" in the board (as we refer to it herein)
+ * <p>
+ * Internally the board is packed into a single long, 4 bits per cell, with
+ * cell i held in bits 4i..4i+3. The index of the hole is cached so that it
+ * never has to be searched for, and the legal moves for every hole position
+ * are precomputed in {@link #MOVES}.
  *
  * @author Michael Langston && Gabe Ferrer
  */
-public class EightPuzzleState implements State {
+public class EightPuzzleState implements TileState {
+
+    public static final int PUZZLE_SIZE = 9;
+
+    /**
+     * Maximum number of successors any board can have, the size a successor
+     * buffer passed to {@link #genSuccessors(long[])} needs to be.
+     */
+    public static final int MAX_SUCCESSORS = 4;
+
+    private static final int[] GOAL = new int[]
+            {1, 2, 3, 4, 5, 6, 7, 8, 0};
+
+    public static final long GOAL_BOARD = pack(GOAL);
+
+    // every nibble above the 9 board cells
+    private static final long UNUSED_CELLS = -1L << (4 * PUZZLE_SIZE);
+
+    /*
+     * For every hole position, the cells whose tile can slide into the hole.
+     * The order matches the original left / top / bottom / right generation
+     * order so successors come out in the same sequence as before.
+     */
+    private static final int[][] MOVES = new int[PUZZLE_SIZE][];
+
+    static {
+        for (int hole = 0; hole < PUZZLE_SIZE; hole++) {
+            int[] tmp = new int[MAX_SUCCESSORS];
+            int n = 0;
+            // slide a tile leftwise into the hole
+            if (hole % 3 != 0) {
+                tmp[n++] = hole - 1;
+            }
+            // slide a tile topwise into the hole
+            if (hole < 6) {
+                tmp[n++] = hole + 3;
+            }
+            // slide a tile bottomwise into the hole
+            if (hole > 2) {
+                tmp[n++] = hole - 3;
+            }
+            // slide a tile rightwise into the hole
+            if (hole % 3 != 2) {
+                tmp[n++] = hole + 1;
+            }
+            MOVES[hole] = new int[n];
+            System.arraycopy(tmp, 0, MOVES[hole], 0, n);
+        }
+    }
+
+    /*
+     * Per tile, per cell contributions to the heuristics and to findCost(),
+     * indexed tile * PUZZLE_SIZE + cell. A move only changes the contents of
+     * two cells, so a child's values are the parent's plus four lookups.
+     */
+    private static final int[] MAN_DIST = new int[PUZZLE_SIZE * PUZZLE_SIZE];
+    private static final int[] OUT_OF_PLACE = new int[PUZZLE_SIZE * PUZZLE_SIZE];
+    private static final int[] COST = new int[PUZZLE_SIZE * PUZZLE_SIZE];
+
+    static {
+        for (int tile = 0; tile < PUZZLE_SIZE; tile++) {
+            for (int cell = 0; cell < PUZZLE_SIZE; cell++) {
+                int i = tile * PUZZLE_SIZE + cell;
+                if (tile != 0) {
+                    int val = tile - 1;
+                    MAN_DIST[i] = Math.abs(val / 3 - cell / 3) + Math.abs(val % 3 - cell % 3);
+                }
+                OUT_OF_PLACE[i] = tile != GOAL[cell] ? 1 : 0;
+                int goalNumber = GOAL[cell] == 0 ? 9 : GOAL[cell];
+                COST[i] = Math.abs(tile - goalNumber);
+            }
+        }
+    }
 
-    private final int PUZZLE_SIZE = 9;
     private int outOfPlace = 0;
 
     private int manDist = 0;
 
-    private final int[] GOAL = new int[]
-            {1, 2, 3, 4, 5, 6, 7, 8, 0};
+    private int cost = 0;
 
-    private int[] curBoard;
+    private final long board;
+
+    private final int hole;
 
     /**
      * Constructor for EightPuzzleState
@@ -31,9 +107,214 @@ public class EightPuzzleState implements State {
      * @param board - the board representation for the new state to be constructed
      */
     public EightPuzzleState(int[] board) {
-        curBoard = board;
+        this(pack(board));
+    }
+
+    /**
+     * Constructor for EightPuzzleState from an already packed board
+     *
+     * @param board - the packed board, see {@link #pack(int[])}
+     */
+    public EightPuzzleState(long board) {
+        this(board, holeOf(board));
+    }
+
+    /**
+     * Constructor for EightPuzzleState when the hole position is already known,
+     * as it is for every generated successor.
+     *
+     * @param board - the packed board
+     * @param hole  - the index of the hole in board
+     */
+    public EightPuzzleState(long board, int hole) {
+        this.board = board;
+        this.hole = hole;
         setOutOfPlace();
         setManDist();
+        setCost();
+    }
+
+    /*
+     * Constructor for a successor whose values were derived from its parent
+     */
+    private EightPuzzleState(long board, int hole, int manDist, int outOfPlace, int cost) {
+        this.board = board;
+        this.hole = hole;
+        this.manDist = manDist;
+        this.outOfPlace = outOfPlace;
+        this.cost = cost;
+    }
+
+    /**
+     * Packs a linear board of 9 cells into a long, 4 bits per cell.
+     *
+     * @param cells - the board as a linear array of length 9
+     * @return the packed board
+     */
+    public static long pack(int[] cells) {
+        long packed = 0;
+        for (int i = 0; i < PUZZLE_SIZE; i++) {
+            packed |= ((long) cells[i]) << (4 * i);
+        }
+        return packed;
+    }
+
+    /**
+     * Unpacks a packed board into a new linear array of length 9.
+     *
+     * @param board - the packed board
+     * @return the board as a linear array
+     */
+    public static int[] unpack(long board) {
+        int[] cells = new int[PUZZLE_SIZE];
+        for (int i = 0; i < PUZZLE_SIZE; i++) {
+            cells[i] = tileAt(board, i);
+        }
+        return cells;
+    }
+
+    /**
+     * @return the tile on the given cell of a packed board, 0 for the hole
+     */
+    public static int tileAt(long board, int cell) {
+        return (int) (board >>> (4 * cell)) & 0xF;
+    }
+
+    /**
+     * Locates the hole of a packed board without scanning the cells, using
+     * the usual "find the zero nibble" bit trick.
+     *
+     * @return the index of the hole
+     */
+    public static int holeOf(long board) {
+        long x = board | UNUSED_CELLS;
+        long zero = (x - 0x1111111111111111L) & ~x & 0x8888888888888888L;
+        return Long.numberOfTrailingZeros(zero) >>> 2;
+    }
+
+    /**
+     * Whether the goal can be reached from a packed board. On a board of odd
+     * width a move never changes the parity of the number of inversions among
+     * the tiles, and the goal has none, so the board is solvable exactly when
+     * that number is even.
+     */
+    public static boolean isSolvable(long board) {
+        int seen = 0;
+        int inversions = 0;
+        for (int cell = 0; cell < PUZZLE_SIZE; cell++) {
+            int tile = tileAt(board, cell);
+            if (tile != 0) {
+                // larger tiles placed before this one
+                inversions += Integer.bitCount(seen >>> tile);
+                seen |= 1 << tile;
+            }
+        }
+        return (inversions & 1) == 0;
+    }
+
+    /**
+     * Slides the tile on cell from into the hole.
+     *
+     * @param board - the packed board
+     * @param hole  - the index of the hole in board
+     * @param from  - a cell adjacent to the hole, see {@link #getMoves(int)}
+     * @return the packed board after the move, whose hole is at from
+     */
+    public static long slide(long board, int hole, int from) {
+        long tile = (board >>> (4 * from)) & 0xF;
+        return (board & ~(0xFL << (4 * from))) | (tile << (4 * hole));
+    }
+
+    /**
+     * The cells whose tile can slide into a hole at the given index. The
+     * returned array is shared and must not be modified.
+     */
+    public static int[] getMoves(int hole) {
+        return MOVES[hole];
+    }
+
+    /**
+     * Writes the packed successors of a packed board into buffer without
+     * allocating. The i-th successor has its hole at getMoves(hole)[i].
+     *
+     * @param board  - the packed board
+     * @param hole   - the index of the hole in board
+     * @param buffer - receives the successors, at least MAX_SUCCESSORS long
+     * @return the number of successors written
+     */
+    public static int genSuccessors(long board, int hole, long[] buffer) {
+        int[] moves = MOVES[hole];
+        for (int i = 0; i < moves.length; i++) {
+            buffer[i] = slide(board, hole, moves[i]);
+        }
+        return moves.length;
+    }
+
+    /**
+     * Change in Manhattan distance when the tile on cell from slides into the
+     * hole.
+     */
+    public static int manDistDelta(long board, int hole, int from) {
+        int t = tileAt(board, from) * PUZZLE_SIZE;
+        return MAN_DIST[t + hole] - MAN_DIST[t + from];
+    }
+
+    /**
+     * Change in tiles out of place when the tile on cell from slides into the
+     * hole. The hole itself counts, as it does in {@link #getOutOfPlace()}.
+     */
+    public static int outOfPlaceDelta(long board, int hole, int from) {
+        int t = tileAt(board, from) * PUZZLE_SIZE;
+        return OUT_OF_PLACE[t + hole] - OUT_OF_PLACE[t + from]
+                + OUT_OF_PLACE[from] - OUT_OF_PLACE[hole];
+    }
+
+    /*
+     * Change in findCost() when the tile on cell from slides into the hole.
+     */
+    private static int costDelta(long board, int hole, int from) {
+        int t = tileAt(board, from) * PUZZLE_SIZE;
+        return COST[t + hole] - COST[t + from] + COST[from] - COST[hole];
+    }
+
+    /**
+     * @return findCost() of the state on a packed board, for engines that
+     * keep boards without their states
+     */
+    public static int findCost(long board) {
+        int cost = 0;
+        for (int cell = 0; cell < PUZZLE_SIZE; cell++) {
+            cost += COST[tileAt(board, cell) * PUZZLE_SIZE + cell];
+        }
+        return cost;
+    }
+
+    /**
+     * Allocation free version of {@link #genSuccessors()} that also writes
+     * the Manhattan distance of every successor, derived from this state's
+     * value rather than recomputed.
+     *
+     * @param buffer   - receives the packed successors, at least MAX_SUCCESSORS long
+     * @param manDists - receives the successors' Manhattan distances
+     * @return the number of successors written
+     */
+    public int genSuccessors(long[] buffer, int[] manDists) {
+        int[] moves = MOVES[hole];
+        for (int i = 0; i < moves.length; i++) {
+            buffer[i] = slide(board, hole, moves[i]);
+            manDists[i] = manDist + manDistDelta(board, hole, moves[i]);
+        }
+        return moves.length;
+    }
+
+    /**
+     * Allocation free version of {@link #genSuccessors()}.
+     *
+     * @param buffer - receives the packed successors, at least MAX_SUCCESSORS long
+     * @return the number of successors written
+     */
+    public int genSuccessors(long[] buffer) {
+        return genSuccessors(board, hole, buffer);
     }
 
     /**
@@ -41,20 +322,25 @@ public class EightPuzzleState implements State {
      */
     @Override
     public double findCost() {
-        int cost = 0;
-        for (int i = 0; i < curBoard.length; i++) {
+        return cost;
+    }
+
+    /*
+     * Set the cost to come to the current board
+     */
+    private void setCost() {
+        for (int i = 0; i < PUZZLE_SIZE; i++) {
             int goalNumber = GOAL[i] == 0 ? 9 : GOAL[i];
-            cost += Math.abs(curBoard[i] - goalNumber);
+            cost += Math.abs(tileAt(board, i) - goalNumber);
         }
-        return cost;
     }
 
     /*
      * Set the 'tiles out of place' distance for the current board
      */
     private void setOutOfPlace() {
-        for (int i = 0; i < curBoard.length; i++) {
-            if (curBoard[i] != GOAL[i]) {
+        for (int i = 0; i < PUZZLE_SIZE; i++) {
+            if (tileAt(board, i) != GOAL[i]) {
                 outOfPlace++;
             }
         }
@@ -76,7 +362,7 @@ public class EightPuzzleState implements State {
 
                 // sub 1 from the val to get the index of where that value
                 // should be
-                int val = (curBoard[index] - 1);
+                int val = (tileAt(board, index) - 1);
 
                 /*
                  * If we're not looking at the hole. The hole will be at
@@ -98,21 +384,11 @@ public class EightPuzzleState implements State {
         }
     }
 
-    /*
-     * Attempt to locate the "0" spot on the current board
-     *
+    /**
      * @return the index of the "hole" (or 0 spot)
      */
-    private int getHole() {
-        // If returning -1, an error has occured. The "hole" should always exist
-        // on the board and should always be found by the below loop.
-        int holeIndex = -1;
-
-        for (int i = 0; i < PUZZLE_SIZE; i++) {
-            if (curBoard[i] == 0)
-                holeIndex = i;
-        }
-        return holeIndex;
+    public int getHole() {
+        return hole;
     }
 
     /**
@@ -120,6 +396,7 @@ public class EightPuzzleState implements State {
      *
      * @return the outOfPlace h(n) value
      */
+    @Override
     public int getOutOfPlace() {
         return outOfPlace;
     }
@@ -129,70 +406,46 @@ public class EightPuzzleState implements State {
      *
      * @return the Manhattan Distance h(n) value
      */
+    @Override
     public int getManDist() {
         return manDist;
     }
 
-    /*
-     * Makes a copy of the array passed to it
-     */
-    private int[] copyBoard(int[] state) {
-        int[] ret = new int[PUZZLE_SIZE];
-        for (int i = 0; i < PUZZLE_SIZE; i++) {
-            ret[i] = state[i];
-        }
-        return ret;
-    }
-
     /**
      * Is thought about in terms of NO MORE THAN 4 operations. Can slide tiles
      * from 4 directions if hole is in middle Two directions if hole is at a
      * corner three directions if hole is in middle of a row
      *
+     * The heuristics and cost of every successor are updated from this
+     * state's values, so generating one costs O(1) instead of a rescan.
+     *
      * @return an ArrayList containing all of the successors for that state
      */
     @Override
     public ArrayList<State> genSuccessors() {
-        ArrayList<State> successors = new ArrayList<State>();
-        int hole = getHole();
-
-        // try to generate a state by sliding a tile leftwise into the hole
-        // if we CAN slide into the hole
-        if (hole != 0 && hole != 3 && hole != 6) {
-            /*
-             * we can slide leftwise into the hole, so generate a new state for
-             * this condition and throw it into successors
-             */
-            swapAndStore(hole - 1, hole, successors);
-        }
-
-        // try to generate a state by sliding a tile topwise into the hole
-        if (hole != 6 && hole != 7 && hole != 8) {
-            swapAndStore(hole + 3, hole, successors);
-        }
-
-        // try to generate a state by sliding a tile bottomwise into the hole
-        if (hole != 0 && hole != 1 && hole != 2) {
-            swapAndStore(hole - 3, hole, successors);
-        }
-        // try to generate a state by sliding a tile rightwise into the hole
-        if (hole != 2 && hole != 5 && hole != 8) {
-            swapAndStore(hole + 1, hole, successors);
+        int n = MOVES[hole].length;
+        ArrayList<State> successors = new ArrayList<State>(n);
+        for (int i = 0; i < n; i++) {
+            successors.add(genSuccessor(i));
         }
-
         return successors;
     }
 
-    /*
-     * Switches the data at indices d1 and d2, in a copy of the current board
-     * creates a new state based on this new board and pushes into s.
+    @Override
+    public int successorCount() {
+        return MOVES[hole].length;
+    }
+
+    /**
+     * The successor that slides the tile on getMoves(hole)[i] into the hole.
      */
-    private void swapAndStore(int d1, int d2, ArrayList<State> s) {
-        int[] cpy = copyBoard(curBoard);
-        int temp = cpy[d1];
-        cpy[d1] = curBoard[d2];
-        cpy[d2] = temp;
-        s.add((new EightPuzzleState(cpy)));
+    @Override
+    public EightPuzzleState genSuccessor(int i) {
+        int from = MOVES[hole][i];
+        return new EightPuzzleState(slide(board, hole, from), from,
+                manDist + manDistDelta(board, hole, from),
+                outOfPlace + outOfPlaceDelta(board, hole, from),
+                cost + costDelta(board, hole, from));
     }
 
     /**
@@ -203,7 +456,7 @@ public class EightPuzzleState implements State {
      */
     @Override
     public boolean isGoal() {
-        return Arrays.equals(curBoard, GOAL);
+        return board == GOAL_BOARD;
     }
 
     /**
@@ -211,14 +464,14 @@ public class EightPuzzleState implements State {
      */
     @Override
     public void printState() {
-        System.out.println(curBoard[6] + " | " + curBoard[7] + " | "
-                + curBoard[8]);
+        System.out.println(tileAt(board, 6) + " | " + tileAt(board, 7) + " | "
+                + tileAt(board, 8));
         System.out.println("---------");
-        System.out.println(curBoard[3] + " | " + curBoard[4] + " | "
-                + curBoard[5]);
+        System.out.println(tileAt(board, 3) + " | " + tileAt(board, 4) + " | "
+                + tileAt(board, 5));
         System.out.println("---------");
-        System.out.println(curBoard[0] + " | " + curBoard[1] + " | "
-                + curBoard[2]);
+        System.out.println(tileAt(board, 0) + " | " + tileAt(board, 1) + " | "
+                + tileAt(board, 2));
 
     }
 
@@ -229,17 +482,62 @@ public class EightPuzzleState implements State {
      */
     @Override
     public boolean equals(State s) {
-        return Arrays.equals(curBoard, ((EightPuzzleState) s).getCurBoard());
+        return board == ((EightPuzzleState) s).getBoard();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof EightPuzzleState && equals((State) o);
+    }
 
+    @Override
+    public int hashCode() {
+        return Long.hashCode(board);
+    }
+
+    @Override
+    public int getWidth() {
+        return 3;
+    }
+
+    /**
+     * @return the packed board, which is unique per board
+     */
+    @Override
+    public long key() {
+        return board;
+    }
+
+    @Override
+    public long keyHi() {
+        return 0;
+    }
+
+    @Override
+    public int getTile(int cell) {
+        return tileAt(board, cell);
+    }
+
+    @Override
+    public TileState goal() {
+        return new EightPuzzleState(GOAL_BOARD, PUZZLE_SIZE - 1);
     }
 
     /**
-     * Getter to return the current board array
+     * Getter to return the current board as a linear array. The array is
+     * unpacked on every call, prefer {@link #getBoard()} on hot paths.
      *
      * @return the curState
      */
     public int[] getCurBoard() {
-        return curBoard;
+        return unpack(board);
+    }
+
+    /**
+     * @return the packed board
+     */
+    public long getBoard() {
+        return board;
     }
 
 }
@@ -0,0 +1,610 @@
+package ir.alizeyn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Defines a breadth-first search that keeps its layers on disk instead of in
+ * a queue, for spaces far larger than the heap such as the whole 15puzzle.
+ * A layer is a set of files of packed boards, 8 bytes each, sorted and free
+ * of repeats. The next layer is made in two passes:
+ * <ol>
+ * <li>expand: the boards of the layer are streamed in and their successors
+ * collected in memory, every full buffer being sorted and written out as a
+ * run;</li>
+ * <li>merge: the runs are merged, dropping repeats and every board found in
+ * the current or the previous layer, which are read alongside since they are
+ * sorted the same way.</li>
+ * </ol>
+ * A successor of a board at depth d is at depth d - 1, d or d + 1, so the
+ * last two layers are all that is needed to tell a new board from one seen
+ * before (delayed duplicate detection).
+ * <p>
+ * Boards can be split by hash among several partitions, a layer then having
+ * one file per partition. Each partition is expanded, and later merged, by
+ * its own task, so the partitions are processed in parallel. The path to the
+ * goal is recovered by walking back from it, each step finding a neighbour
+ * in the layer before by binary search in its file. Boards must fit a single
+ * word, so up to 4x4.
+ * <p>
+ * The path has the fewest moves. Its cost is the findCost() sum of the path,
+ * reported optimal only where every move costs 1.
+ */
+public class ExternalBFSearch {
+
+    /**
+     * Directory for the layer files, the system temporary directory if unset.
+     * Every run works in its own subdirectory, removed when it ends.
+     */
+    public static final String DIR_PROPERTY = "ebfs.dir";
+
+    /**
+     * Number of partitions used by ProblemSolver, overridable with
+     * -Debfs.partitions.
+     */
+    public static final String PARTITIONS_PROPERTY = "ebfs.partitions";
+
+    /**
+     * Boards each expanding task buffers in memory before writing a run,
+     * overridable with -Debfs.buffer.
+     */
+    public static final String BUFFER_PROPERTY = "ebfs.buffer";
+
+    public static final int DEFAULT_BUFFER = 1 << 22;
+
+    // runs merged at once, more are first merged into fewer, larger runs
+    private static final int MAX_FAN_IN = 256;
+
+    // bytes of a read or write buffer, a multiple of 8
+    private static final int IO_BUFFER = 1 << 16;
+
+    private final PuzzleGeometry geometry;
+    private final Path dir;
+    private final int partitions;
+    private final int bufferSize;
+    private final boolean keepLayers;
+    private final SearchStatistics stats;
+    private final ExecutorService executor;
+
+    private long goal;
+    private volatile boolean goalReached;
+    private final List<Long> layerSizes = new ArrayList<Long>();
+
+    private ExternalBFSearch(PuzzleGeometry geometry, Path dir, int partitions, boolean keepLayers,
+                             SearchStatistics stats) throws IOException {
+        if (geometry.isWide()) {
+            throw new IllegalArgumentException("External BFS supports boards up to 4x4");
+        }
+        if (partitions < 1) {
+            throw new IllegalArgumentException("At least one partition is needed");
+        }
+        this.geometry = geometry;
+        this.dir = Files.createTempDirectory(Files.createDirectories(dir), "ebfs");
+        this.partitions = partitions;
+        this.bufferSize = Math.max(1024, Integer.getInteger(BUFFER_PROPERTY, DEFAULT_BUFFER) / partitions);
+        this.keepLayers = keepLayers;
+        this.stats = stats;
+        this.executor = Executors.newFixedThreadPool(
+                Math.min(partitions, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Initialization function for 8puzzle ExternalBFSearch with a single
+     * partition in the default directory
+     *
+     * @param board - The starting state, represented as a linear array of length
+     *              9 forming 3 meta-rows.
+     */
+    public static SearchResult search(int[] board) {
+        return search(new EightPuzzleState(board), defaultDir(), 1);
+    }
+
+    /**
+     * Initialization function for ExternalBFSearch with the directory and
+     * the number of partitions taken from the system properties
+     *
+     * @param start - The starting state
+     */
+    public static SearchResult search(TileState start) {
+        return search(start, defaultDir(), Integer.getInteger(PARTITIONS_PROPERTY, 1));
+    }
+
+    /**
+     * Initialization function for ExternalBFSearch on any sliding tile puzzle
+     * up to 4x4
+     *
+     * @param start      - The starting state
+     * @param dir        - where the layer files are written
+     * @param partitions - the number of files, and of parallel tasks, per layer
+     */
+    public static SearchResult search(TileState start, Path dir, int partitions) {
+        SearchStatistics stats = new SearchStatistics("EBFS");
+        PuzzleGeometry geometry = PuzzleGeometry.forWidth(start.getWidth());
+        try {
+            ExternalBFSearch search = new ExternalBFSearch(geometry, dir, partitions, true, stats);
+            try {
+                int depth = search.run(start.key(), geometry.getGoalLo());
+                if (depth < 0) {
+                    return SearchResult.notFound(stats);
+                }
+                List<State> path = new ArrayList<State>();
+                for (long board : search.walkBack(geometry.getGoalLo(), depth)) {
+                    path.add(start instanceof EightPuzzleState
+                            ? new EightPuzzleState(board) : new SlidingTileState(geometry, board, 0));
+                }
+                return SearchResult.found(path, SearchResult.unitCost(start), stats);
+            } finally {
+                search.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Enumerates every board reachable from start, layer by layer, keeping
+     * only the last two layers on disk.
+     *
+     * @param start      - The starting state
+     * @param dir        - where the layer files are written
+     * @param partitions - the number of files, and of parallel tasks, per layer
+     * @return the number of boards at every distance from start
+     */
+    public static long[] layerSizes(TileState start, Path dir, int partitions) throws IOException {
+        SearchStatistics stats = new SearchStatistics("EBFS");
+        PuzzleGeometry geometry = PuzzleGeometry.forWidth(start.getWidth());
+        ExternalBFSearch search = new ExternalBFSearch(geometry, dir, partitions, false, stats);
+        try {
+            search.run(start.key(), 0);
+            long[] sizes = new long[search.layerSizes.size()];
+            for (int d = 0; d < sizes.length; d++) {
+                sizes[d] = search.layerSizes.get(d);
+            }
+            return sizes;
+        } finally {
+            search.close();
+        }
+    }
+
+    private static Path defaultDir() {
+        return Paths.get(System.getProperty(DIR_PROPERTY, System.getProperty("java.io.tmpdir")));
+    }
+
+    /*
+     * Builds the layers until the goal is reached or no new board is left.
+     * A goal of 0, which is no board, enumerates the whole space.
+     *
+     * @return the depth of the goal, or -1 if it was not reached
+     */
+    private int run(long start, long goal) throws IOException {
+        this.goal = goal;
+        for (int p = 0; p < partitions; p++) {
+            try (BoardWriter out = new BoardWriter(layer(0, p))) {
+                if (p == partitionOf(start)) {
+                    out.write(start);
+                }
+            }
+        }
+        layerSizes.add(1L);
+        stats.openSize(1);
+        stats.closedSize(1);
+        if (start == goal) {
+            return 0;
+        }
+
+        long seen = 1;
+        for (int d = 0; ; d++) {
+            stats.iterationStart(d + 1);
+            expand(d);
+            long size = merge(d);
+            if (!keepLayers && d > 0) {
+                for (int p = 0; p < partitions; p++) {
+                    Files.delete(layer(d - 1, p));
+                }
+            }
+            stats.iterationDone(size == 0 || goalReached ? -1 : d + 2);
+            if (size == 0) {
+                return -1;
+            }
+            layerSizes.add(size);
+            seen += size;
+            stats.openSize(size);
+            stats.closedSize(seen);
+            if (goalReached) {
+                return d + 1;
+            }
+        }
+    }
+
+    /*
+     * Writes the successors of every board of layer d as sorted runs, one
+     * set of runs per partition.
+     */
+    private void expand(final int d) throws IOException {
+        List<Callable<SearchStatistics>> tasks = new ArrayList<Callable<SearchStatistics>>();
+        for (int p = 0; p < partitions; p++) {
+            final int source = p;
+            tasks.add(new Callable<SearchStatistics>() {
+                @Override
+                public SearchStatistics call() throws IOException {
+                    return expandPartition(d, source);
+                }
+            });
+        }
+        for (SearchStatistics part : runAll(tasks)) {
+            stats.merge(part);
+        }
+    }
+
+    private SearchStatistics expandPartition(int d, int source) throws IOException {
+        SearchStatistics part = new SearchStatistics("EBFS");
+        long[][] buffers = new long[partitions][bufferSize];
+        int[] fill = new int[partitions];
+        int runs = 0;
+        try (BoardReader in = new BoardReader(layer(d, source))) {
+            while (in.next()) {
+                long board = in.board;
+                int hole = geometry.holeOf(board);
+                for (int from : geometry.getMoves(hole)) {
+                    long child = geometry.slide(board, hole, from);
+                    int q = partitionOf(child);
+                    part.generated();
+                    buffers[q][fill[q]++] = child;
+                    if (fill[q] == bufferSize) {
+                        spill(buffers[q], fill[q], run(q, source, runs++), part);
+                        fill[q] = 0;
+                    }
+                }
+                part.expanded();
+            }
+        }
+        for (int q = 0; q < partitions; q++) {
+            if (fill[q] > 0) {
+                spill(buffers[q], fill[q], run(q, source, runs++), part);
+            }
+        }
+        return part;
+    }
+
+    /*
+     * Sorts the first n boards of buffer and writes them to file without
+     * repeats.
+     */
+    private static void spill(long[] buffer, int n, Path file, SearchStatistics part) throws IOException {
+        Arrays.sort(buffer, 0, n);
+        try (BoardWriter out = new BoardWriter(file)) {
+            out.write(buffer[0]);
+            for (int i = 1; i < n; i++) {
+                if (buffer[i] == buffer[i - 1]) {
+                    part.duplicate();
+                } else {
+                    out.write(buffer[i]);
+                }
+            }
+        }
+    }
+
+    /*
+     * Merges the runs of every partition into layer d + 1.
+     *
+     * @return the number of boards in the new layer
+     */
+    private long merge(final int d) throws IOException {
+        List<Callable<SearchStatistics>> tasks = new ArrayList<Callable<SearchStatistics>>();
+        for (int q = 0; q < partitions; q++) {
+            final int target = q;
+            tasks.add(new Callable<SearchStatistics>() {
+                @Override
+                public SearchStatistics call() throws IOException {
+                    return mergePartition(d, target);
+                }
+            });
+        }
+        for (SearchStatistics part : runAll(tasks)) {
+            stats.merge(part);
+        }
+        long size = 0;
+        for (int q = 0; q < partitions; q++) {
+            size += Files.size(layer(d + 1, q)) / 8;
+        }
+        return size;
+    }
+
+    private SearchStatistics mergePartition(int d, int q) throws IOException {
+        SearchStatistics part = new SearchStatistics("EBFS");
+        List<Path> runs = runsOf(q);
+        // too many runs to hold open at once are merged into fewer first
+        int pass = 0;
+        while (runs.size() > MAX_FAN_IN) {
+            List<Path> merged = new ArrayList<Path>();
+            for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+                List<Path> group = runs.subList(i, Math.min(runs.size(), i + MAX_FAN_IN));
+                Path out = dir.resolve("merge-" + q + "-" + pass + "-" + merged.size() + ".bin");
+                mergeRuns(group, out, null, null, part);
+                merged.add(out);
+            }
+            runs = merged;
+            pass++;
+        }
+
+        // the first layer has none before it and stands in for it
+        try (BoardReader current = new BoardReader(layer(d, q));
+             BoardReader previous = new BoardReader(layer(d > 0 ? d - 1 : d, q))) {
+            mergeRuns(runs, layer(d + 1, q), current, previous, part);
+        }
+        return part;
+    }
+
+    /*
+     * Writes the union of the sorted runs to out without repeats, leaving
+     * out the boards of the sorted layers current and previous when given.
+     * The runs are deleted.
+     */
+    private void mergeRuns(List<Path> runs, Path out, BoardReader current, BoardReader previous,
+                           SearchStatistics part) throws IOException {
+        PriorityQueue<BoardReader> heap = new PriorityQueue<BoardReader>(Math.max(1, runs.size()),
+                new Comparator<BoardReader>() {
+                    @Override
+                    public int compare(BoardReader a, BoardReader b) {
+                        return Long.compare(a.board, b.board);
+                    }
+                });
+        List<BoardReader> readers = new ArrayList<BoardReader>();
+        try (BoardWriter writer = new BoardWriter(out)) {
+            for (Path run : runs) {
+                BoardReader reader = new BoardReader(run);
+                readers.add(reader);
+                if (reader.next()) {
+                    heap.add(reader);
+                }
+            }
+            boolean any = false;
+            long last = 0;
+            while (!heap.isEmpty()) {
+                BoardReader reader = heap.poll();
+                long board = reader.board;
+                if (reader.next()) {
+                    heap.add(reader);
+                }
+                if (any && board == last) {
+                    part.duplicate();
+                    continue;
+                }
+                any = true;
+                last = board;
+                if (current != null && (current.skipTo(board) || previous.skipTo(board))) {
+                    part.duplicate();
+                    continue;
+                }
+                writer.write(board);
+                if (board == goal) {
+                    goalReached = true;
+                }
+            }
+        } finally {
+            for (BoardReader reader : readers) {
+                reader.close();
+            }
+        }
+        for (Path run : runs) {
+            Files.delete(run);
+        }
+    }
+
+    /*
+     * @return the boards from the start to board, a board of layer depth
+     */
+    private long[] walkBack(long board, int depth) throws IOException {
+        long[] path = new long[depth + 1];
+        path[depth] = board;
+        for (int d = depth - 1; d >= 0; d--) {
+            long next = path[d + 1];
+            int hole = geometry.holeOf(next);
+            for (int from : geometry.getMoves(hole)) {
+                long neighbour = geometry.slide(next, hole, from);
+                if (contains(layer(d, partitionOf(neighbour)), neighbour)) {
+                    path[d] = neighbour;
+                    break;
+                }
+            }
+        }
+        return path;
+    }
+
+    /*
+     * Binary search of a sorted layer file.
+     */
+    private static boolean contains(Path file, long board) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer entry = ByteBuffer.allocate(8);
+            long low = 0;
+            long high = channel.size() / 8 - 1;
+            while (low <= high) {
+                long mid = (low + high) >>> 1;
+                entry.clear();
+                while (entry.hasRemaining() && channel.read(entry, mid * 8 + entry.position()) >= 0) {
+                    // keep reading until the entry is complete
+                }
+                entry.flip();
+                long value = entry.getLong();
+                if (value < board) {
+                    low = mid + 1;
+                } else if (value > board) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private <T> List<T> runAll(List<Callable<T>> tasks) throws IOException {
+        List<T> results = new ArrayList<T>();
+        try {
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("External BFS interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        return results;
+    }
+
+    private int partitionOf(long board) {
+        return (int) (((board * 0x9E3779B97F4A7C15L) >>> 33) % partitions);
+    }
+
+    private Path layer(int d, int p) {
+        return dir.resolve("layer-" + d + "-" + p + ".bin");
+    }
+
+    private Path run(int q, int source, int n) {
+        return dir.resolve("run-" + q + "-" + source + "-" + n + ".bin");
+    }
+
+    private List<Path> runsOf(int q) throws IOException {
+        List<Path> runs = new ArrayList<Path>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "run-" + q + "-*.bin")) {
+            for (Path file : files) {
+                runs.add(file);
+            }
+        }
+        return runs;
+    }
+
+    /*
+     * Stops the tasks and removes the working directory with every file
+     * left in it.
+     */
+    private void close() throws IOException {
+        executor.shutdownNow();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    /*
+     * Sequential reader of a file of packed boards.
+     */
+    private static final class BoardReader implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER);
+        private boolean started;
+        private boolean more = true;
+        long board;
+
+        BoardReader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            buffer.flip();
+        }
+
+        /*
+         * Moves to the next board.
+         *
+         * @return false at the end of the file
+         */
+        boolean next() throws IOException {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // keep reading until the buffer is full or the file ends
+                }
+                buffer.flip();
+                if (!buffer.hasRemaining()) {
+                    more = false;
+                    return false;
+                }
+            }
+            board = buffer.getLong();
+            return true;
+        }
+
+        /*
+         * Moves forward to the first board not below target.
+         *
+         * @return whether target is in the file
+         */
+        boolean skipTo(long target) throws IOException {
+            if (!started) {
+                started = true;
+                next();
+            }
+            while (more && board < target) {
+                next();
+            }
+            return more && board == target;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /*
+     * Buffered writer of a file of packed boards.
+     */
+    private static final class BoardWriter implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER);
+
+        BoardWriter(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void write(long board) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.putLong(board);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package ir.alizeyn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Defines a parallel A* search in the style of Hash Distributed A* (HDA*) for
+ * the sliding tile puzzles. Each worker thread owns the boards whose
+ * Zobrist hash maps to it and keeps its own open and closed lists, so no
+ * search structure is ever shared. A generated child is sent to its owner
+ * through the owner's lock-free inbox, children being batched per destination
+ * to keep the queue traffic low. Boards travel and are stored as the two
+ * words of {@link PuzzleGeometry}, the high one 0 up to 4x4, and closed
+ * lists are keyed by {@link PuzzleGeometry#key(long, long)} and the high word.
+ * <p>
+ * Workers prune against the best solution found so far. The search stops when
+ * every worker is idle, meaning it has nothing left below that cost, and no
+ * batch is in flight, which is detected by reading the global sent and
+ * received counters before and after seeing every worker idle. At that point
+ * no open node anywhere can lead to a cheaper solution, so the one found has
+ * the fewest moves. It is reported optimal except on the 8puzzle, whose
+ * moves cost more than 1.
+ */
+public class HDAStarSearch {
+
+    // nodes per message batch
+    private static final int BATCH = 256;
+
+    // expansions between two flushes of the outgoing batches
+    private static final int FLUSH_EVERY = 64;
+
+    // longs per node in a batch: board, its high word, g << 32 | h, parent
+    // reference
+    private static final int MSG = 4;
+
+    private static final int MAX_CELLS = PuzzleGeometry.MAX_WIDTH * PuzzleGeometry.MAX_WIDTH;
+
+    // random key per (cell, tile), the hash of a board XORs those of its cells
+    private static final long[] ZOBRIST = new long[MAX_CELLS * MAX_CELLS];
+
+    static {
+        Random random = new Random(0x5EEDL);
+        for (int i = 0; i < ZOBRIST.length; i++) {
+            ZOBRIST[i] = random.nextLong();
+        }
+    }
+
+    private final PuzzleGeometry geometry;
+    private final boolean wide;
+    private final AdditivePatternDatabase pdb;
+    private final Worker[] workers;
+
+    private final AtomicInteger incumbent = new AtomicInteger(Integer.MAX_VALUE);
+    private long goalRef = -1;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicInteger idle = new AtomicInteger();
+    private volatile boolean done;
+    private volatile Throwable failure;
+
+    private HDAStarSearch(PuzzleGeometry geometry, AdditivePatternDatabase pdb, int threads) {
+        this.geometry = geometry;
+        this.wide = geometry.isWide();
+        this.pdb = pdb;
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i);
+        }
+    }
+
+    /**
+     * Initialization function for 8puzzle HDA*Search with the Manhattan
+     * distance, one worker per available processor
+     *
+     * @param board - The starting state, represented as a linear array of length
+     *              9 forming 3 meta-rows.
+     */
+    public static SearchResult search(int[] board) {
+        return search(new EightPuzzleState(board), null, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Initialization function for HDA*Search on any sliding tile puzzle
+     *
+     * @param start   - The starting state
+     * @param pdb     - pattern databases for the start's width, or null to
+     *                use the Manhattan distance
+     * @param threads - the number of worker threads
+     */
+    public static SearchResult search(TileState start, AdditivePatternDatabase pdb, int threads) {
+        SearchStatistics stats = new SearchStatistics("HDA*");
+        PuzzleGeometry geometry = PuzzleGeometry.forWidth(start.getWidth());
+        HDAStarSearch search = new HDAStarSearch(geometry, pdb, threads);
+
+        int[] cells = new int[geometry.getSize()];
+        for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] = start.getTile(cell);
+        }
+        long[] board = geometry.pack(cells);
+        List<Long> refs = search.run(board[0], board[1]);
+
+        for (Worker worker : search.workers) {
+            stats.merge(worker.stats);
+        }
+        if (refs == null) {
+            return SearchResult.notFound(stats);
+        }
+
+        List<State> path = new ArrayList<State>();
+        for (long ref : refs) {
+            Worker w = search.workers[(int) (ref >>> 32)];
+            int rec = (int) ref;
+            path.add(start instanceof EightPuzzleState
+                    ? new EightPuzzleState(w.boards[rec])
+                    : new SlidingTileState(geometry, w.boards[rec], w.boardsHi[rec]));
+        }
+        return SearchResult.found(path, SearchResult.unitCost(start), stats);
+    }
+
+    /*
+     * Runs the workers to completion.
+     *
+     * @return the references of the nodes from the start to the goal, null
+     * if there is no solution
+     */
+    private List<Long> run(long start, long startHi) {
+        Worker owner = workers[owner(hash(start, startHi))];
+        owner.insert(start, startHi, 0, h(start, startHi), -1);
+
+        Thread[] threads = new Thread[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            threads[i] = new Thread(workers[i], "hda-worker-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                done = true;
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while searching", e);
+            }
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Worker failed", failure);
+        }
+        if (goalRef < 0) {
+            return null;
+        }
+
+        List<Long> path = new ArrayList<Long>();
+        for (long ref = goalRef; ref >= 0; ref = workers[(int) (ref >>> 32)].parents[(int) ref]) {
+            path.add(ref);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    private synchronized void offerSolution(int cost, long ref) {
+        if (cost < incumbent.get()) {
+            goalRef = ref;
+            incumbent.set(cost);
+        }
+    }
+
+    private int owner(long hash) {
+        return (int) ((hash & Long.MAX_VALUE) % workers.length);
+    }
+
+    private long hash(long board, long hi) {
+        long hash = 0;
+        for (int cell = 0; cell < geometry.getSize(); cell++) {
+            hash ^= ZOBRIST[cell * MAX_CELLS + geometry.get(board, hi, cell)];
+        }
+        return hash;
+    }
+
+    private int h(long board, long hi) {
+        int h = 0;
+        if (pdb == null) {
+            for (int cell = 0; cell < geometry.getSize(); cell++) {
+                h += geometry.manDist(geometry.get(board, hi, cell), cell);
+            }
+        } else {
+            int[] cellOfTile = new int[geometry.getSize()];
+            for (int cell = 0; cell < cellOfTile.length; cell++) {
+                cellOfTile[geometry.get(board, hi, cell)] = cell;
+            }
+            h = pdb.h(cellOfTile);
+        }
+        return h;
+    }
+
+    /*
+     * Termination check run by idle workers: all workers idle and the sent
+     * and received counters equal and unchanged around that observation.
+     */
+    private void checkTermination() {
+        long s = sent.get();
+        long r = received.get();
+        if (s == r && idle.get() == workers.length && sent.get() == s && received.get() == r) {
+            done = true;
+        }
+    }
+
+    /*
+     * A worker and the part of the search space it owns. Nodes are records
+     * in parallel arrays, referenced across workers as id << 32 | record.
+     */
+    private final class Worker implements Runnable {
+
+        private final int id;
+        private final ConcurrentLinkedQueue<long[]> inbox = new ConcurrentLinkedQueue<long[]>();
+        private final long[][] outbox;
+        private final int[] outboxSize;
+
+        private final IntBucketQueue open = new IntBucketQueue();
+        private final LongIntHashMap closed = new LongIntHashMap(1 << 16);
+        private long[] boards = new long[1 << 12];
+        private long[] boardsHi = new long[1 << 12];
+        private long[] parents = new long[1 << 12];
+        private int[] gs = new int[1 << 12];
+        private int[] hs = new int[1 << 12];
+        private int count;
+
+        private final int[] cellOfTile;
+        private final int[] patternH;
+        private boolean isIdle;
+
+        // merged into the search's statistics once the workers are done
+        private final SearchStatistics stats = new SearchStatistics("HDA*");
+
+        Worker(int id) {
+            this.id = id;
+            this.outbox = new long[workers.length][BATCH * MSG];
+            this.outboxSize = new int[workers.length];
+            this.cellOfTile = new int[geometry.getSize()];
+            this.patternH = new int[pdb == null ? 0 : pdb.size()];
+        }
+
+        @Override
+        public void run() {
+            try {
+                int spins = 0;
+                while (!done) {
+                    long[] batch;
+                    while ((batch = inbox.poll()) != null) {
+                        if (isIdle) {
+                            isIdle = false;
+                            idle.decrementAndGet();
+                        }
+                        for (int i = 0; i < batch.length; i += MSG) {
+                            insert(batch[i], batch[i + 1], (int) (batch[i + 2] >>> 32), (int) batch[i + 2],
+                                    batch[i + 3]);
+                        }
+                        received.incrementAndGet();
+                    }
+
+                    int expansions = 0;
+                    while (expansions < FLUSH_EVERY && open.peekF() < incumbent.get()) {
+                        int rec = open.pop();
+                        if (closed.get(geometry.key(boards[rec], boardsHi[rec]), boardsHi[rec], -1) == rec) {
+                            expand(rec);
+                            expansions++;
+                        } else {
+                            stats.duplicate();
+                        }
+                    }
+                    flushAll();
+
+                    if (expansions == 0 && inbox.isEmpty()) {
+                        if (!isIdle) {
+                            isIdle = true;
+                            idle.incrementAndGet();
+                        }
+                        checkTermination();
+                        if (++spins < 100) {
+                            Thread.onSpinWait();
+                        } else {
+                            LockSupport.parkNanos(20_000);
+                        }
+                    } else {
+                        spins = 0;
+                    }
+                }
+            } catch (Throwable t) {
+                failure = t;
+                done = true;
+            }
+        }
+
+        /*
+         * Files a node this worker owns, unless the board is already known
+         * at no greater cost or the node cannot beat the incumbent.
+         */
+        void insert(long board, long hi, int g, int h, long parent) {
+            if (g + h >= incumbent.get()) {
+                return;
+            }
+            long key = geometry.key(board, hi);
+            int known = closed.get(key, hi, -1);
+            if (known >= 0) {
+                if (gs[known] <= g) {
+                    stats.duplicate();
+                    return;
+                }
+                stats.reopened();
+            }
+            if (count == boards.length) {
+                int length = count * 2;
+                boards = Arrays.copyOf(boards, length);
+                boardsHi = Arrays.copyOf(boardsHi, length);
+                parents = Arrays.copyOf(parents, length);
+                gs = Arrays.copyOf(gs, length);
+                hs = Arrays.copyOf(hs, length);
+            }
+            int rec = count++;
+            boards[rec] = board;
+            boardsHi[rec] = hi;
+            parents[rec] = parent;
+            gs[rec] = g;
+            hs[rec] = h;
+            // a cheaper copy replaces the old record, which turns stale
+            closed.put(key, hi, rec);
+            open.push(rec, g + h, g);
+            stats.openSize(open.size());
+            stats.closedSize(closed.size());
+        }
+
+        private void expand(int rec) {
+            long board = boards[rec];
+            long hi = boardsHi[rec];
+            int g = gs[rec];
+            int h = hs[rec];
+            long ref = ((long) id << 32) | rec;
+            if (h == 0 && board == geometry.getGoalLo() && hi == geometry.getGoalHi()) {
+                offerSolution(g, ref);
+                return;
+            }
+
+            stats.expanded();
+            int hole = wide ? geometry.holeOf(board, hi) : geometry.holeOf(board);
+            long hash = hash(board, hi);
+            if (pdb != null) {
+                for (int cell = 0; cell < cellOfTile.length; cell++) {
+                    cellOfTile[geometry.get(board, hi, cell)] = cell;
+                }
+                for (int p = 0; p < patternH.length; p++) {
+                    patternH[p] = pdb.patternValue(p, cellOfTile);
+                }
+            }
+
+            int childG = g + 1;
+            for (int from : geometry.getMoves(hole)) {
+                int tile = geometry.get(board, hi, from);
+                long child;
+                long childHi;
+                if (wide) {
+                    child = geometry.withCellLo(geometry.withCellLo(board, from, 0), hole, tile);
+                    childHi = geometry.withCellHi(geometry.withCellHi(hi, from, 0), hole, tile);
+                } else {
+                    child = geometry.slide(board, hole, from);
+                    childHi = 0;
+                }
+                stats.generated();
+
+                long t = stats.heuristicStart();
+                int childH;
+                if (pdb == null) {
+                    childH = h + geometry.manDist(tile, hole) - geometry.manDist(tile, from);
+                } else {
+                    int pattern = pdb.patternOf(tile);
+                    cellOfTile[tile] = hole;
+                    childH = h - patternH[pattern] + pdb.patternValue(pattern, cellOfTile);
+                    cellOfTile[tile] = from;
+                }
+                stats.heuristicDone(t);
+                if (childG + childH >= incumbent.get()) {
+                    continue;
+                }
+
+                long childHash = hash
+                        ^ ZOBRIST[from * MAX_CELLS + tile] ^ ZOBRIST[hole * MAX_CELLS]
+                        ^ ZOBRIST[hole * MAX_CELLS + tile] ^ ZOBRIST[from * MAX_CELLS];
+                int dest = owner(childHash);
+                if (dest == id) {
+                    insert(child, childHi, childG, childH, ref);
+                } else {
+                    long[] out = outbox[dest];
+                    int n = outboxSize[dest];
+                    out[n] = child;
+                    out[n + 1] = childHi;
+                    out[n + 2] = ((long) childG << 32) | childH;
+                    out[n + 3] = ref;
+                    outboxSize[dest] = n + MSG;
+                    if (n + MSG == out.length) {
+                        flush(dest);
+                    }
+                }
+            }
+        }
+
+        private void flushAll() {
+            for (int dest = 0; dest < outbox.length; dest++) {
+                if (outboxSize[dest] > 0) {
+                    flush(dest);
+                }
+            }
+        }
+
+        private void flush(int dest) {
+            long[] batch = Arrays.copyOf(outbox[dest], outboxSize[dest]);
+            outboxSize[dest] = 0;
+            // counted before it becomes visible, see checkTermination
+            sent.incrementAndGet();
+            workers[dest].inbox.add(batch);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ir.alizeyn;
+
+import java.util.Arrays;
+
+/**
+ * An admissible h(n) for the sliding tile puzzles, which engines accept in
+ * place of a hard-wired choice. A heuristic is evaluated in one of two ways:
+ * on a whole board with {@link #h(TileState)}, for engines that keep every
+ * node as a state, or incrementally by a {@link Tracker}, for engines that
+ * make and undo moves on a single mutable board, the tracker following along
+ * and updating h(n) from the moved tile alone.
+ * <p>
+ * The heuristics shipped are the Manhattan distance and tiles out of place
+ * ({@link TileCostHeuristic}), the Manhattan distance plus linear conflicts
+ * ({@link LinearConflictHeuristic}), the walking distance
+ * ({@link WalkingDistanceHeuristic}) and the additive pattern databases
+ * ({@link AdditivePatternDatabase}). {@link #max(Heuristic...)} combines any
+ * of them into their maximum, which is admissible as well.
+ */
+public interface Heuristic {
+
+    /**
+     * @return h(n) for the board of s
+     */
+    int h(TileState s);
+
+    /**
+     * Starts following a board through moves.
+     *
+     * @param start - the board the engine starts from
+     */
+    Tracker track(TileState start);
+
+    /**
+     * @return a short name for statistics and checkpoints
+     */
+    String getName();
+
+    /**
+     * @return a heuristic whose value is the largest of the values of parts,
+     * all of the same width
+     */
+    static Heuristic max(Heuristic... parts) {
+        return new MaxHeuristic(parts);
+    }
+
+    /**
+     * h(n) of a board an engine changes one move at a time. The tracker
+     * keeps whatever it needs of the board itself, so that a move only costs
+     * the update of the parts of h(n) the moved tile takes part in, and saves
+     * what a move changes on a stack, so that undoing it costs nothing.
+     */
+    abstract class Tracker {
+
+        private int[] saved = new int[64];
+        private int top;
+
+        /**
+         * @return h(n) of the board as it stands
+         */
+        public abstract int h();
+
+        /**
+         * Slides tile from cell from into the hole on cell to.
+         *
+         * @return h(n) of the new board
+         */
+        public abstract int move(int tile, int from, int to);
+
+        /**
+         * Takes back the last move not taken back yet.
+         */
+        public abstract void undo();
+
+        protected void push(int value) {
+            if (top == saved.length) {
+                saved = Arrays.copyOf(saved, top * 2);
+            }
+            saved[top++] = value;
+        }
+
+        protected int pop() {
+            return saved[--top];
+        }
+    }
+}
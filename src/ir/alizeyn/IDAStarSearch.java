@@ -0,0 +1,409 @@
+package ir.alizeyn;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Defines an Iterative-Deepening A* search for the sliding tile puzzles. Each
+ * iteration is a depth-first search bounded by f(n) = g(n) + h(n), the bound
+ * growing to the smallest f(n) that exceeded it, so memory stays linear in the
+ * solution depth.
+ * <p>
+ * The search works on a single mutable board: a move is made before
+ * descending and unmade on the way back, the move that would undo the
+ * previous one is never tried, and a {@link Heuristic.Tracker} follows the
+ * moves, updating h(n) from the moved tile alone. Nothing is allocated inside
+ * the recursion. Every move counts 1, so the
+ * solution found has the fewest moves, reported optimal where that is also
+ * the cheapest path, see {@link SearchResult#unitCost(State)}.
+ * <p>
+ * With a {@link Checkpoint} the search takes snapshots of the threshold, the
+ * lowest f(n) beyond it seen so far and the moves down to the current node.
+ * A resumed search replays those moves, skipping the siblings already
+ * searched on the way down, and carries on from that node of the iteration.
+ * <p>
+ * With a {@link TranspositionTable} every board searched to the end is
+ * recorded with its g(n) and a lower bound on its distance to the goal: one
+ * move more than the lowest bound of its neighbours, the board the move came
+ * from included at its h(n), so the bound holds whichever way the board is
+ * reached later. A board reached again with more moves is not searched, and
+ * one whose bound puts it over the threshold is cut like a leaf. Neither can
+ * be on an optimal path the search has to follow, so the solution is still
+ * the shortest. Boards close to the threshold are left out of the table.
+ */
+public class IDAStarSearch {
+
+    // the least threshold - f(n) of a board looked up in and recorded into
+    // the transposition table, the subtrees below the others being too small
+    // to pay for the memory access
+    private static final int TABLE_SLACK = 2;
+
+    private final PuzzleGeometry geometry;
+    private final Heuristic.Tracker tracker;
+
+    private final int[] cells;
+    private int hole;
+    // the packed board, kept when there is a transposition table
+    private long board;
+
+    private final TranspositionTable table;
+    // lower bound on the distance to the goal of the board the last dfs()
+    // failed from
+    private int bound;
+
+    // the cell the hole moved to at every depth of the current path
+    private int[] path;
+    private int threshold;
+    private int nextThreshold;
+    private final SearchStatistics stats;
+
+    private final TileState start;
+    private final Checkpoint checkpoint;
+    private final String checkpointEngine;
+    // depth of the node a resumed search starts from, -1 once reached
+    private int resumeDepth = -1;
+
+    private IDAStarSearch(TileState start, Heuristic heuristic, TranspositionTable table,
+                          Checkpoint checkpoint, SearchStatistics stats) {
+        this.stats = stats;
+        this.start = start;
+        this.checkpoint = checkpoint;
+        this.checkpointEngine = "IDA*/" + heuristic.getName();
+        this.geometry = PuzzleGeometry.forWidth(start.getWidth());
+        // a 5x5 board does not fit an entry, so it is searched without one
+        this.table = geometry.isWide() ? null : table;
+        this.tracker = heuristic.track(start);
+        int size = geometry.getSize();
+        cells = new int[size];
+        for (int cell = 0; cell < size; cell++) {
+            cells[cell] = start.getTile(cell);
+        }
+        hole = indexOf(cells, 0);
+        if (this.table != null) {
+            board = start.key();
+            table.prepare(board);
+        }
+    }
+
+    /**
+     * Initialization function for 8puzzle IDA*Search with the Manhattan
+     * distance
+     *
+     * @param board - The starting state, represented as a linear array of length
+     *              9 forming 3 meta-rows.
+     */
+    public static SearchResult search(int[] board) {
+        return search(new EightPuzzleState(board), null);
+    }
+
+    /**
+     * Initialization function for IDA*Search on any sliding tile puzzle
+     *
+     * @param start - The starting state
+     * @param pdb   - pattern databases for the start's width, or null to use
+     *              the Manhattan distance
+     */
+    public static SearchResult search(TileState start, AdditivePatternDatabase pdb) {
+        return search(start, pdb, null);
+    }
+
+    /**
+     * Initialization function for IDA*Search taking snapshots on the way
+     *
+     * @param start      - The starting state
+     * @param pdb        - pattern databases for the start's width, or null to
+     *                   use the Manhattan distance
+     * @param checkpoint - where snapshots go and are resumed from, or null
+     */
+    public static SearchResult search(TileState start, AdditivePatternDatabase pdb, Checkpoint checkpoint) {
+        return search(start, pdb == null ? TileCostHeuristic.manhattan(start.getWidth()) : pdb, checkpoint);
+    }
+
+    /**
+     * Initialization function for IDA*Search with any heuristic
+     *
+     * @param start     - The starting state
+     * @param heuristic - h(n), followed incrementally through the moves
+     */
+    public static SearchResult search(TileState start, Heuristic heuristic) {
+        return search(start, heuristic, null);
+    }
+
+    /**
+     * Initialization function for IDA*Search with any heuristic, taking
+     * snapshots on the way
+     *
+     * @param start      - The starting state
+     * @param heuristic  - h(n), followed incrementally through the moves
+     * @param checkpoint - where snapshots go and are resumed from, or null
+     */
+    public static SearchResult search(TileState start, Heuristic heuristic, Checkpoint checkpoint) {
+        return search(start, heuristic, null, checkpoint);
+    }
+
+    /**
+     * Initialization function for IDA*Search with any heuristic and a
+     * transposition table, taking snapshots on the way
+     *
+     * @param start      - The starting state
+     * @param heuristic  - h(n), followed incrementally through the moves
+     * @param table      - boards searched before, or null; not used on 5x5
+     * @param checkpoint - where snapshots go and are resumed from, or null
+     */
+    public static SearchResult search(TileState start, Heuristic heuristic, TranspositionTable table,
+                                      Checkpoint checkpoint) {
+        SearchStatistics stats = new SearchStatistics("IDA*");
+        IDAStarSearch search = new IDAStarSearch(start, heuristic, table, checkpoint, stats);
+        int depth = search.run();
+        if (checkpoint != null) {
+            checkpoint.finish();
+        }
+        if (depth < 0) {
+            return SearchResult.notFound(stats);
+        }
+
+        // the frontier of a depth-first search is the current path
+        stats.openSize(depth);
+        return SearchResult.found(replay(start, search.path, depth), SearchResult.unitCost(start), stats);
+    }
+
+    /**
+     * Replays moves on a copy of the start board.
+     *
+     * @param start - the starting state
+     * @param holes - the cell the hole moved to at every move
+     * @param moves - the number of moves
+     * @return the states from the start through every move
+     */
+    static List<State> replay(TileState start, int[] holes, int moves) {
+        List<State> path = new ArrayList<State>();
+        path.add(start);
+        int[] board = new int[start.getWidth() * start.getWidth()];
+        for (int cell = 0; cell < board.length; cell++) {
+            board[cell] = start.getTile(cell);
+        }
+        int hole = indexOf(board, 0);
+        for (int i = 0; i < moves; i++) {
+            int from = holes[i];
+            board[hole] = board[from];
+            board[from] = 0;
+            hole = from;
+            path.add(stateOf(start, board));
+        }
+        return path;
+    }
+
+    /*
+     * Runs the iterations until the goal is reached.
+     *
+     * @return the solution length, or -1 if there is none
+     */
+    private int run() {
+        int h = tracker.h();
+        threshold = h;
+        int[] resumePath = resume();
+        while (true) {
+            path = new int[threshold + 1];
+            nextThreshold = Integer.MAX_VALUE;
+            if (resumePath != null) {
+                System.arraycopy(resumePath, 1, path, 0, resumeDepth);
+                nextThreshold = resumePath[0];
+                resumePath = null;
+            }
+            stats.iterationStart(threshold);
+            int depth = dfs(0, h, -1, 0);
+            if (depth >= 0) {
+                stats.iterationDone(-1);
+                return depth;
+            }
+            if (nextThreshold == Integer.MAX_VALUE) {
+                stats.iterationDone(-1);
+                return -1;
+            }
+            stats.iterationDone(nextThreshold);
+            threshold = nextThreshold;
+        }
+    }
+
+    /*
+     * Bounded depth-first search below the current board.
+     *
+     * @param g        - moves made so far
+     * @param h        - h(n) of the current board
+     * @param prevHole - where the hole was before the last move, -1 at the root
+     * @param parentH  - h(n) of the board before the last move
+     * @return the solution length if the goal was reached, -1 otherwise, the
+     * bound on the board's distance being left in bound
+     */
+    private int dfs(int g, int h, int prevHole, int parentH) {
+        int f = g + h;
+        if (f > threshold) {
+            if (f < nextThreshold) {
+                nextThreshold = f;
+            }
+            bound = h;
+            return -1;
+        }
+        if (h == 0 && isGoal()) {
+            return g;
+        }
+
+        // a resumed search goes straight down to the node of its snapshot
+        boolean resuming = g < resumeDepth;
+        boolean tabled = table != null && threshold - f >= TABLE_SLACK;
+        if (tabled && !resuming) {
+            int entry = table.probe(board);
+            if (entry != TranspositionTable.MISSING) {
+                int known = Math.max(h, TranspositionTable.bound(entry));
+                if (TranspositionTable.g(entry) < g) {
+                    // searched before from fewer moves
+                    stats.duplicate();
+                    bound = known;
+                    return -1;
+                }
+                if (g + known > threshold) {
+                    if (g + known < nextThreshold) {
+                        nextThreshold = g + known;
+                    }
+                    bound = known;
+                    return -1;
+                }
+            }
+        }
+        stats.expanded();
+        if (g == resumeDepth) {
+            resumeDepth = -1;
+        } else if (!resuming && checkpoint != null && checkpoint.isDue()) {
+            save(g);
+        }
+
+        // siblings skipped while resuming leave the bound unknown
+        boolean complete = !resuming;
+        int lowest = Integer.MAX_VALUE;
+
+        int[] moves = geometry.getMoves(hole);
+        for (int from : moves) {
+            if (resuming) {
+                // siblings before the path were searched before the snapshot
+                if (from != path[g]) {
+                    continue;
+                }
+                resuming = false;
+            } else if (from == prevHole) {
+                // moving the tile back where it came from only undoes the last move
+                stats.duplicate();
+                continue;
+            }
+            int to = hole;
+            int tile = cells[from];
+            stats.generated();
+
+            // make the move
+            cells[to] = tile;
+            cells[from] = 0;
+            hole = from;
+            long parentBoard = board;
+            if (table != null) {
+                board = geometry.slide(board, to, from);
+            }
+
+            long t = stats.heuristicStart();
+            int childH = tracker.move(tile, from, to);
+            stats.heuristicDone(t);
+
+            path[g] = from;
+            int depth = dfs(g + 1, childH, to, h);
+
+            // unmake the move
+            tracker.undo();
+            board = parentBoard;
+            hole = to;
+            cells[from] = tile;
+            cells[to] = 0;
+
+            if (depth >= 0) {
+                return depth;
+            }
+            lowest = Math.min(lowest, bound + 1);
+        }
+
+        if (prevHole >= 0) {
+            lowest = Math.min(lowest, parentH + 1);
+        }
+        bound = complete ? Math.max(h, lowest) : h;
+        if (tabled && complete) {
+            table.store(board, g, bound);
+        }
+        return -1;
+    }
+
+    /*
+     * Snapshot taken on entering a node at depth g.
+     */
+    private void save(int g) {
+        Checkpoint.Snapshot out = checkpoint.begin(checkpointEngine, start);
+        out.putInt(threshold);
+        out.putInt(nextThreshold);
+        out.putInt(g);
+        for (int i = 0; i < g; i++) {
+            out.putByte(path[i]);
+        }
+        checkpoint.save(out);
+    }
+
+    /*
+     * Restores the threshold from the snapshot of an earlier run, if any.
+     *
+     * @return the lowest f(n) beyond the threshold seen before the snapshot
+     * followed by the moves down to its node, null without a snapshot
+     */
+    private int[] resume() {
+        DataInputStream in = checkpoint == null ? null : checkpoint.resume(checkpointEngine, start);
+        if (in == null) {
+            return null;
+        }
+        try {
+            threshold = in.readInt();
+            int next = in.readInt();
+            resumeDepth = in.readInt();
+            int[] resumePath = new int[resumeDepth + 1];
+            resumePath[0] = next;
+            for (int i = 1; i <= resumeDepth; i++) {
+                resumePath[i] = in.readByte();
+            }
+            in.close();
+            return resumePath;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isGoal() {
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] != geometry.goalTile(cell)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(int[] board, int tile) {
+        for (int i = 0; i < board.length; i++) {
+            if (board[i] == tile) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // a state of the same kind as start for the given board
+    private static TileState stateOf(TileState start, int[] board) {
+        if (start instanceof EightPuzzleState) {
+            return new EightPuzzleState(board.clone());
+        }
+        return new SlidingTileState(board.clone());
+    }
+}
@@ -0,0 +1,153 @@
+package ir.alizeyn;
+
+/**
+ * Primitive int version of {@link BucketQueue}, for engines that refer to
+ * their nodes by int handle instead of by object. Entries come out with the
+ * lowest f(n) first, ties going to the highest g(n), with O(1) push and O(1)
+ * amortized pop.
+ */
+public class IntBucketQueue {
+
+    private int[][][] buckets = new int[64][][];
+    private int[][] bucketSizes = new int[64][];
+    private int[] fCounts = new int[64];
+    private int[] maxG = new int[64];
+
+    private int minF = Integer.MAX_VALUE;
+    private int size;
+
+    /**
+     * Adds e under the given costs.
+     *
+     * @param f - f(n) = g(n) + h(n), must not be negative
+     * @param g - g(n), must not be negative
+     */
+    public void push(int e, int f, int g) {
+        if (f >= fCounts.length) {
+            growF(f + 1);
+        }
+        int[][] byG = buckets[f];
+        int[] sizes = bucketSizes[f];
+        if (byG == null || g >= byG.length) {
+            int length = Math.max(g + 1, byG == null ? 8 : byG.length * 2);
+            int[][] newByG = new int[length][];
+            int[] newSizes = new int[length];
+            if (byG != null) {
+                System.arraycopy(byG, 0, newByG, 0, byG.length);
+                System.arraycopy(sizes, 0, newSizes, 0, sizes.length);
+            }
+            buckets[f] = byG = newByG;
+            bucketSizes[f] = sizes = newSizes;
+        }
+        int[] bucket = byG[g];
+        int n = sizes[g];
+        if (bucket == null) {
+            byG[g] = bucket = new int[16];
+        } else if (n == bucket.length) {
+            int[] grown = new int[n * 2];
+            System.arraycopy(bucket, 0, grown, 0, n);
+            byG[g] = bucket = grown;
+        }
+        bucket[n] = e;
+        sizes[g] = n + 1;
+
+        if (fCounts[f]++ == 0 || g > maxG[f]) {
+            maxG[f] = g;
+        }
+        if (f < minF) {
+            minF = f;
+        }
+        size++;
+    }
+
+    /**
+     * Removes and returns an entry with the lowest f and, among those, the
+     * highest g.
+     *
+     * @return the entry, or -1 if the queue is empty
+     */
+    public int pop() {
+        if (size == 0) {
+            return -1;
+        }
+        while (fCounts[minF] == 0) {
+            minF++;
+        }
+        int f = minF;
+        int[] sizes = bucketSizes[f];
+        int g = maxG[f];
+        while (sizes[g] == 0) {
+            g--;
+        }
+        maxG[f] = g;
+
+        int n = --sizes[g];
+        int e = buckets[f][g][n];
+
+        fCounts[f]--;
+        size--;
+        if (size == 0) {
+            minF = Integer.MAX_VALUE;
+        }
+        return e;
+    }
+
+    /**
+     * @return the lowest f held in the queue, Integer.MAX_VALUE if empty
+     */
+    public int peekF() {
+        if (size == 0) {
+            return Integer.MAX_VALUE;
+        }
+        while (fCounts[minF] == 0) {
+            minF++;
+        }
+        return minF;
+    }
+
+    /**
+     * @return every entry, in the order that pushing them back into an empty
+     * queue gives the same queue
+     */
+    public int[] toArray() {
+        int[] entries = new int[size];
+        int n = 0;
+        for (int f = 0; f < fCounts.length; f++) {
+            if (fCounts[f] == 0) {
+                continue;
+            }
+            int[] sizes = bucketSizes[f];
+            for (int g = 0; g < sizes.length; g++) {
+                if (sizes[g] > 0) {
+                    System.arraycopy(buckets[f][g], 0, entries, n, sizes[g]);
+                    n += sizes[g];
+                }
+            }
+        }
+        return entries;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void growF(int needed) {
+        int length = Math.max(needed, fCounts.length * 2);
+        int[][][] newBuckets = new int[length][][];
+        int[][] newSizes = new int[length][];
+        int[] newCounts = new int[length];
+        int[] newMaxG = new int[length];
+        System.arraycopy(buckets, 0, newBuckets, 0, buckets.length);
+        System.arraycopy(bucketSizes, 0, newSizes, 0, bucketSizes.length);
+        System.arraycopy(fCounts, 0, newCounts, 0, fCounts.length);
+        System.arraycopy(maxG, 0, newMaxG, 0, maxG.length);
+        buckets = newBuckets;
+        bucketSizes = newSizes;
+        fCounts = newCounts;
+        maxG = newMaxG;
+    }
+}
@@ -0,0 +1,40 @@
+package ir.alizeyn;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event committed at the end of every iteration of IDA* and
+ * RBFS.
+ */
+@Name("ir.alizeyn.Iteration")
+@Label("Search Iteration")
+@Category("Puzzle Search")
+@Description("One f(n) bounded iteration of an iterative search")
+class IterationEvent extends jdk.jfr.Event {
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Iteration")
+    int iteration;
+
+    @Label("Bound")
+    int bound;
+
+    @Label("Next Bound")
+    int nextBound;
+
+    @Label("Nodes Generated")
+    long nodesGenerated;
+
+    @Label("Nodes Expanded")
+    long nodesExpanded;
+
+    @Label("Iteration Time")
+    @Timespan
+    long durationNanos;
+}
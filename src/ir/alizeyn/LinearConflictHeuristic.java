@@ -0,0 +1,155 @@
+package ir.alizeyn;
+
+/**
+ * The Manhattan distance plus linear conflicts (Hansson et al.). Two tiles
+ * are in linear conflict when they sit in their goal row, or column, in the
+ * reverse of their goal order: one of them has to leave the line and come
+ * back, which the Manhattan distance does not count. For every line, h(n)
+ * adds two moves per tile that must leave it, the tiles of the line that
+ * belong there minus the longest run of them already in order.
+ * <p>
+ * Tiles leaving a row are moved vertically and tiles leaving a column
+ * horizontally, so the two kinds of conflict add to each other and to the
+ * Manhattan distance without overestimating. A vertical move changes the
+ * conflicts of the two rows the tile goes between and leaves the order of
+ * every column alone, a horizontal move the other way round, so the tracker
+ * recounts two lines per move.
+ */
+public class LinearConflictHeuristic implements Heuristic {
+
+    private static final LinearConflictHeuristic[] BY_WIDTH =
+            new LinearConflictHeuristic[PuzzleGeometry.MAX_WIDTH + 1];
+
+    private final PuzzleGeometry geometry;
+    private final int width;
+
+    private LinearConflictHeuristic(PuzzleGeometry geometry) {
+        this.geometry = geometry;
+        this.width = geometry.getWidth();
+    }
+
+    /**
+     * @return the heuristic for boards of the given width
+     */
+    public static synchronized LinearConflictHeuristic forWidth(int width) {
+        if (BY_WIDTH[width] == null) {
+            BY_WIDTH[width] = new LinearConflictHeuristic(PuzzleGeometry.forWidth(width));
+        }
+        return BY_WIDTH[width];
+    }
+
+    @Override
+    public int h(TileState s) {
+        return new Board(s).h();
+    }
+
+    @Override
+    public Tracker track(TileState start) {
+        return new Board(start);
+    }
+
+    @Override
+    public String getName() {
+        return "linear-conflict";
+    }
+
+    /*
+     * A board with its Manhattan distance and the tiles that must leave every
+     * row and every column.
+     */
+    private final class Board extends Tracker {
+        private final int[] cells;
+        private final int[] rowConflicts = new int[width];
+        private final int[] columnConflicts = new int[width];
+        // the goal positions of a line's tiles, and the longest run ending
+        // at each of them
+        private final int[] order = new int[width];
+        private final int[] run = new int[width];
+        private int manDist;
+        private int conflicts;
+
+        Board(TileState start) {
+            cells = new int[geometry.getSize()];
+            for (int cell = 0; cell < cells.length; cell++) {
+                cells[cell] = start.getTile(cell);
+                manDist += geometry.manDist(cells[cell], cell);
+            }
+            for (int line = 0; line < width; line++) {
+                rowConflicts[line] = countLine(line * width, 1, line, true);
+                columnConflicts[line] = countLine(line, width, line, false);
+                conflicts += rowConflicts[line] + columnConflicts[line];
+            }
+        }
+
+        @Override
+        public int h() {
+            return manDist + 2 * conflicts;
+        }
+
+        @Override
+        public int move(int tile, int from, int to) {
+            push(tile);
+            push(from);
+            push(to);
+            slide(tile, from, to);
+            return h();
+        }
+
+        @Override
+        public void undo() {
+            int to = pop();
+            int from = pop();
+            int tile = pop();
+            slide(tile, to, from);
+        }
+
+        private void slide(int tile, int from, int to) {
+            manDist += geometry.manDist(tile, to) - geometry.manDist(tile, from);
+            cells[to] = tile;
+            cells[from] = 0;
+            if (from / width != to / width) {
+                conflicts -= rowConflicts[from / width] + rowConflicts[to / width];
+                rowConflicts[from / width] = countLine(from / width * width, 1, from / width, true);
+                rowConflicts[to / width] = countLine(to / width * width, 1, to / width, true);
+                conflicts += rowConflicts[from / width] + rowConflicts[to / width];
+            } else {
+                conflicts -= columnConflicts[from % width] + columnConflicts[to % width];
+                columnConflicts[from % width] = countLine(from % width, width, from % width, false);
+                columnConflicts[to % width] = countLine(to % width, width, to % width, false);
+                conflicts += columnConflicts[from % width] + columnConflicts[to % width];
+            }
+        }
+
+        /*
+         * The tiles that must leave a line: those whose goal line it is,
+         * minus the longest run of them in increasing goal order.
+         *
+         * @param first - the first cell of the line
+         * @param step  - 1 along a row, width along a column
+         * @param line  - the index of the row or column
+         */
+        private int countLine(int first, int step, int line, boolean row) {
+            int n = 0;
+            for (int i = 0, cell = first; i < width; i++, cell += step) {
+                int tile = cells[cell];
+                if (tile != 0) {
+                    int goal = tile - 1;
+                    if ((row ? goal / width : goal % width) == line) {
+                        order[n++] = row ? goal % width : goal / width;
+                    }
+                }
+            }
+            int longest = 0;
+            for (int i = 0; i < n; i++) {
+                run[i] = 1;
+                for (int j = 0; j < i; j++) {
+                    if (order[j] < order[i] && run[j] + 1 > run[i]) {
+                        run[i] = run[j] + 1;
+                    }
+                }
+                longest = Math.max(longest, run[i]);
+            }
+            return n - longest;
+        }
+    }
+}
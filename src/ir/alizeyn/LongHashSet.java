@@ -0,0 +1,183 @@
+package ir.alizeyn;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash set of primitive longs. Keys are never boxed, the table
+ * is a single long[] probed linearly, so adding or looking up a packed board
+ * costs a multiply, a shift and usually one memory access.
+ * <p>
+ * Keys too wide for a word, such as 5x5 boards, are added as two longs, key
+ * and hi, key being the one hashed. The high words take a second long[],
+ * allocated with the first key whose hi is not 0, so single word keys never
+ * pay for it; a single word key is the pair (key, 0).
+ * <p>
+ * 0 is used to mark free slots, a 0 key is tracked separately.
+ */
+public class LongHashSet {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private long[] his;
+    private int mask;
+    private int shift;
+    private int size;
+    private int resizeAt;
+    private boolean containsZero;
+
+    public LongHashSet() {
+        this(1 << 10);
+    }
+
+    /**
+     * @param expected - the number of keys expected, used to size the table
+     */
+    public LongHashSet(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Spreads the key bits and maps them onto a slot (fibonacci hashing).
+     */
+    static int mix(long key, int shift) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /**
+     * Adds key to the set.
+     *
+     * @return true if key was not in the set before
+     */
+    public boolean add(long key) {
+        return add(key, 0);
+    }
+
+    /**
+     * Adds the two word key (key, hi) to the set.
+     *
+     * @return true if the key was not in the set before
+     */
+    public boolean add(long key, long hi) {
+        if (key == 0 && hi == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        if (his == null && hi != 0) {
+            his = new long[keys.length];
+        }
+        int slot = mix(key, shift);
+        long k;
+        if (his == null) {
+            while ((k = keys[slot]) != 0) {
+                if (k == key) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+        } else {
+            while ((k = keys[slot]) != 0 || his[slot] != 0) {
+                if (k == key && his[slot] == hi) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            his[slot] = hi;
+        }
+        keys[slot] = key;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if key is in the set
+     */
+    public boolean contains(long key) {
+        return contains(key, 0);
+    }
+
+    /**
+     * @return true if the two word key (key, hi) is in the set
+     */
+    public boolean contains(long key, long hi) {
+        if (key == 0 && hi == 0) {
+            return containsZero;
+        }
+        int slot = mix(key, shift);
+        long k;
+        if (his == null) {
+            if (hi != 0) {
+                return false;
+            }
+            while ((k = keys[slot]) != 0) {
+                if (k == key) {
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+        } else {
+            while ((k = keys[slot]) != 0 || his[slot] != 0) {
+                if (k == key && his[slot] == hi) {
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every key, keeping the current table size.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        if (his != null) {
+            Arrays.fill(his, 0);
+        }
+        size = 0;
+        containsZero = false;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        his = his == null ? null : new long[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        long[] old = keys;
+        long[] oldHis = his;
+        allocate(capacity);
+        for (int i = 0; i < old.length; i++) {
+            long key = old[i];
+            long hi = oldHis == null ? 0 : oldHis[i];
+            if (key != 0 || hi != 0) {
+                int slot = mix(key, shift);
+                while (keys[slot] != 0 || his != null && his[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                if (his != null) {
+                    his[slot] = hi;
+                }
+            }
+        }
+    }
+}
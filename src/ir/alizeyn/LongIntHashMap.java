@@ -0,0 +1,186 @@
+package ir.alizeyn;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from primitive long keys to int values, the map
+ * counterpart of {@link LongHashSet}. Used to index the best g(n) found so far
+ * for every packed board without boxing either side. Keys may be two longs
+ * like in the set, the high words allocated with the first that is not 0.
+ */
+public class LongIntHashMap {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    // what find() returns for a missing key and for the key (0, 0)
+    private static final int NONE = -1;
+    private static final int ZERO = -2;
+
+    private long[] keys;
+    private long[] his;
+    private int[] values;
+    private int mask;
+    private int shift;
+    private int size;
+    private int resizeAt;
+    private boolean containsZero;
+    private int zeroValue;
+
+    public LongIntHashMap() {
+        this(1 << 10);
+    }
+
+    /**
+     * @param expected - the number of keys expected, used to size the table
+     */
+    public LongIntHashMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @return the value stored for key, or missing if there is none
+     */
+    public int get(long key, int missing) {
+        return get(key, 0, missing);
+    }
+
+    /**
+     * @return the value stored for the two word key (key, hi), or missing if
+     * there is none
+     */
+    public int get(long key, long hi, int missing) {
+        int slot = find(key, hi);
+        return slot == NONE ? missing : slot == ZERO ? zeroValue : values[slot];
+    }
+
+    /**
+     * Stores value for key, replacing any previous value.
+     */
+    public void put(long key, int value) {
+        put(key, 0, value);
+    }
+
+    /**
+     * Stores value for the two word key (key, hi), replacing any previous
+     * value.
+     */
+    public void put(long key, long hi, int value) {
+        if (key == 0 && hi == 0) {
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+        if (his == null && hi != 0) {
+            his = new long[keys.length];
+        }
+        int slot = LongHashSet.mix(key, shift);
+        long k;
+        if (his == null) {
+            while ((k = keys[slot]) != 0) {
+                if (k == key) {
+                    values[slot] = value;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+        } else {
+            while ((k = keys[slot]) != 0 || his[slot] != 0) {
+                if (k == key && his[slot] == hi) {
+                    values[slot] = value;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            his[slot] = hi;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return find(key, 0) != NONE;
+    }
+
+    public boolean containsKey(long key, long hi) {
+        return find(key, hi) != NONE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        if (his != null) {
+            Arrays.fill(his, 0);
+        }
+        size = 0;
+        containsZero = false;
+    }
+
+    // the slot of (key, hi), ZERO or NONE
+    private int find(long key, long hi) {
+        if (key == 0 && hi == 0) {
+            return containsZero ? ZERO : NONE;
+        }
+        int slot = LongHashSet.mix(key, shift);
+        long k;
+        if (his == null) {
+            if (hi != 0) {
+                return NONE;
+            }
+            while ((k = keys[slot]) != 0) {
+                if (k == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        } else {
+            while ((k = keys[slot]) != 0 || his[slot] != 0) {
+                if (k == key && his[slot] == hi) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        return NONE;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        his = his == null ? null : new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldHis = his;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            long hi = oldHis == null ? 0 : oldHis[i];
+            if (key != 0 || hi != 0) {
+                int slot = LongHashSet.mix(key, shift);
+                while (keys[slot] != 0 || his != null && his[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                if (his != null) {
+                    his[slot] = hi;
+                }
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
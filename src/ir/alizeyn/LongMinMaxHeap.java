@@ -0,0 +1,203 @@
+package ir.alizeyn;
+
+/**
+ * Fixed capacity double-ended priority queue of primitive longs, laid out as
+ * a min-max heap (Atkinson et al.) in a single long[]: the levels of the tree
+ * alternate between ones whose entries are no greater than their descendants
+ * and ones whose entries are no smaller. The lowest entry is the root and the
+ * highest one of its two children, so both ends are read in O(1) and removed
+ * in O(log n).
+ * <p>
+ * Engines pack a priority in the high bits and a slot of their own in the
+ * low bits, and use the high end to find what to evict once the heap is full.
+ */
+public class LongMinMaxHeap {
+
+    private final long[] heap;
+    private int size;
+
+    /**
+     * @param capacity - the most entries the heap holds, at least 1
+     */
+    public LongMinMaxHeap(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        heap = new long[capacity];
+    }
+
+    /**
+     * Adds value, the heap must not be full.
+     */
+    public void add(long value) {
+        if (size == heap.length) {
+            throw new IllegalStateException("Heap is full");
+        }
+        heap[size] = value;
+        bubbleUp(size++);
+    }
+
+    /**
+     * @return the lowest entry, the heap must not be empty
+     */
+    public long peekMin() {
+        return heap[0];
+    }
+
+    /**
+     * @return the highest entry, the heap must not be empty
+     */
+    public long peekMax() {
+        return heap[maxIndex()];
+    }
+
+    /**
+     * Removes and returns the lowest entry, the heap must not be empty.
+     */
+    public long pollMin() {
+        return removeAt(0);
+    }
+
+    /**
+     * Removes and returns the highest entry, the heap must not be empty.
+     */
+    public long pollMax() {
+        return removeAt(maxIndex());
+    }
+
+    /**
+     * @return the entry at position i, 0 &lt;= i &lt; size(), in no
+     * particular order
+     */
+    public long get(int i) {
+        return heap[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return heap.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == heap.length;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private int maxIndex() {
+        if (size <= 2) {
+            return size - 1;
+        }
+        return heap[1] >= heap[2] ? 1 : 2;
+    }
+
+    private long removeAt(int i) {
+        if (size == 0) {
+            throw new IllegalStateException("Heap is empty");
+        }
+        long value = heap[i];
+        heap[i] = heap[--size];
+        if (i < size) {
+            trickleDown(i);
+        }
+        return value;
+    }
+
+    /*
+     * Levels alternate, the root's level holding minima.
+     */
+    private static boolean onMinLevel(int i) {
+        return (31 - Integer.numberOfLeadingZeros(i + 1) & 1) == 0;
+    }
+
+    private void bubbleUp(int i) {
+        if (i == 0) {
+            return;
+        }
+        int parent = (i - 1) >>> 1;
+        if (onMinLevel(i)) {
+            if (heap[i] > heap[parent]) {
+                swap(i, parent);
+                bubbleUpMax(parent);
+            } else {
+                bubbleUpMin(i);
+            }
+        } else {
+            if (heap[i] < heap[parent]) {
+                swap(i, parent);
+                bubbleUpMin(parent);
+            } else {
+                bubbleUpMax(i);
+            }
+        }
+    }
+
+    private void bubbleUpMin(int i) {
+        while (i > 2) {
+            int grandparent = (i - 3) >>> 2;
+            if (heap[i] >= heap[grandparent]) {
+                return;
+            }
+            swap(i, grandparent);
+            i = grandparent;
+        }
+    }
+
+    private void bubbleUpMax(int i) {
+        while (i > 2) {
+            int grandparent = (i - 3) >>> 2;
+            if (heap[i] <= heap[grandparent]) {
+                return;
+            }
+            swap(i, grandparent);
+            i = grandparent;
+        }
+    }
+
+    private void trickleDown(int i) {
+        boolean min = onMinLevel(i);
+        while (2 * i + 1 < size) {
+            // the extreme entry among the children and grandchildren of i
+            int m = 2 * i + 1;
+            if (m + 1 < size && (min ? heap[m + 1] < heap[m] : heap[m + 1] > heap[m])) {
+                m++;
+            }
+            for (int j = 4 * i + 3, end = Math.min(4 * i + 7, size); j < end; j++) {
+                if (min ? heap[j] < heap[m] : heap[j] > heap[m]) {
+                    m = j;
+                }
+            }
+            if (m <= 2 * i + 2) {
+                // a child, none of its own children is more extreme
+                if (min ? heap[m] < heap[i] : heap[m] > heap[i]) {
+                    swap(i, m);
+                }
+                return;
+            }
+            if (!(min ? heap[m] < heap[i] : heap[m] > heap[i])) {
+                return;
+            }
+            swap(i, m);
+            int parent = (m - 1) >>> 1;
+            if (min ? heap[m] > heap[parent] : heap[m] < heap[parent]) {
+                swap(m, parent);
+            }
+            i = m;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long t = heap[i];
+        heap[i] = heap[j];
+        heap[j] = t;
+    }
+}
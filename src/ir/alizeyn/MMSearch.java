@@ -0,0 +1,290 @@
+package ir.alizeyn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Defines a bidirectional heuristic search in the style of MM (Holte et al.),
+ * which is guaranteed to meet in the middle. A forward A* from the start and
+ * a backward A* from the goal each order their open list by
+ * pr(n) = max(f(n), 2g(n)), so neither search expands a node beyond half the
+ * optimal cost, and the direction with the lower minimum priority expands
+ * next.
+ * <p>
+ * Every generated node is looked up in the other direction's index of best
+ * g(n) per board; a hit is a solution of cost g + g'. The best one is
+ * returned once no open node can lead to a cheaper one, by the usual test
+ * U &lt;= max(C, fminF, fminB, gminF + gminB + 1) with C the lower of the two
+ * minimum priorities. g(n) counts moves, so the solution is only reported
+ * optimal where every move costs 1.
+ * <p>
+ * The forward search uses the Manhattan distance or pattern databases
+ * toward the goal. The backward search needs them toward the start: the
+ * Manhattan distance is taken to the start's tiles directly, and the pattern
+ * databases are read on the board with its tiles renamed after their cells on
+ * the start board. Renaming only preserves distances when the hole is left
+ * alone, so the databases are used backward only when the start's hole is on
+ * the goal's hole cell, the Manhattan distance otherwise.
+ */
+public class MMSearch {
+
+    private final PuzzleGeometry geometry;
+    private final SearchStatistics stats;
+
+    private MMSearch(PuzzleGeometry geometry, SearchStatistics stats) {
+        this.geometry = geometry;
+        this.stats = stats;
+    }
+
+    /**
+     * Initialization function for 8puzzle MMSearch with the Manhattan
+     * distance
+     *
+     * @param board - The starting state, represented as a linear array of length
+     *              9 forming 3 meta-rows.
+     */
+    public static SearchResult search(int[] board) {
+        return search(new EightPuzzleState(board), null);
+    }
+
+    /**
+     * Initialization function for MMSearch on any sliding tile puzzle
+     *
+     * @param start - The starting state
+     * @param pdb   - pattern databases for the start's width, or null to use
+     *              the Manhattan distance
+     */
+    public static SearchResult search(TileState start, AdditivePatternDatabase pdb) {
+        SearchStatistics stats = new SearchStatistics("MM");
+        MMSearch search = new MMSearch(PuzzleGeometry.forWidth(start.getWidth()), stats);
+        TileState goal = start.goal();
+
+        Direction forward = search.new Direction(goal, pdb);
+        boolean holeInPlace = goal.getTile(indexOfHole(start)) == 0;
+        Direction backward = search.new Direction(start, holeInPlace ? pdb : null);
+        forward.insert(new SearchNode(start));
+        backward.insert(new SearchNode(goal));
+        return search.run(forward, backward);
+    }
+
+    /*
+     * Alternates the directions until the termination test holds.
+     */
+    private SearchResult run(Direction forward, Direction backward) {
+        int best = Integer.MAX_VALUE;
+        SearchNode bestForward = null;
+        SearchNode bestBackward = null;
+        if (forward.root().getCurState().isGoal()) {
+            best = 0;
+            bestForward = forward.root();
+        }
+
+        while (!forward.open.isEmpty() && !backward.open.isEmpty()) {
+            int c = Math.min(forward.open.peekF(), backward.open.peekF());
+            int bound = Math.max(Math.max(c, forward.fMin.min()), backward.fMin.min());
+            bound = Math.max(bound, forward.gMin.min() + backward.gMin.min() + 1);
+            if (best <= bound) {
+                break;
+            }
+
+            boolean forwardTurn = forward.open.peekF() <= backward.open.peekF();
+            Direction expanding = forwardTurn ? forward : backward;
+            Direction other = forwardTurn ? backward : forward;
+
+            SearchNode n = expanding.pop();
+            int g = n.getCost();
+            // skip nodes superseded by a cheaper path to the same board
+            if (g > expanding.bestG(ClosedSet.keyOf(n.getCurState()), ClosedSet.keyHiOf(n.getCurState()))) {
+                stats.duplicate();
+                continue;
+            }
+
+            ArrayList<State> successors = n.getCurState().genSuccessors();
+            for (int i = 0; i < successors.size(); i++) {
+                TileState successor = (TileState) successors.get(i);
+                int childG = g + 1;
+                stats.generated();
+
+                long key = successor.key();
+                long hi = successor.keyHi();
+                int known = expanding.bestG(key, hi);
+                if (known <= childG) {
+                    stats.duplicate();
+                    continue;
+                }
+                if (known != Integer.MAX_VALUE) {
+                    stats.reopened();
+                }
+
+                long t = stats.heuristicStart();
+                int h = expanding.h(successor);
+                stats.heuristicDone(t);
+                SearchNode child = new SearchNode(n, successor, childG, h);
+                expanding.record(key, hi, child);
+
+                SearchNode met = other.nodeOf(key, hi);
+                if (met != null && childG + met.getCost() < best) {
+                    best = childG + met.getCost();
+                    bestForward = forwardTurn ? child : met;
+                    bestBackward = forwardTurn ? met : child;
+                }
+                // nothing through child can beat the solution in hand
+                if (childG + h < best) {
+                    expanding.push(child);
+                }
+            }
+            stats.expanded();
+            stats.openSize(forward.open.size() + backward.open.size());
+            stats.closedSize(forward.index.size() + backward.index.size());
+        }
+
+        if (bestForward == null) {
+            return SearchResult.notFound(stats);
+        }
+        List<State> path = SearchResult.splice(bestForward, bestBackward);
+        return SearchResult.found(path, SearchResult.unitCost(path.get(0)), stats);
+    }
+
+    private static int indexOfHole(TileState s) {
+        int cell = 0;
+        while (s.getTile(cell) != 0) {
+            cell++;
+        }
+        return cell;
+    }
+
+    /*
+     * One direction of the search: its open list under pr(n), the counts of
+     * f(n) and g(n) among the open entries for the termination test, and the
+     * best node found per board.
+     */
+    private final class Direction {
+        final BucketQueue<SearchNode> open = new BucketQueue<SearchNode>();
+        final MinCounter fMin = new MinCounter();
+        final MinCounter gMin = new MinCounter();
+        // the key of a board maps to the position of its best node in nodes
+        final LongIntHashMap index = new LongIntHashMap(1 << 16);
+        final ArrayList<SearchNode> nodes = new ArrayList<SearchNode>();
+
+        final AdditivePatternDatabase pdb;
+        // the cell of every tile on the board searched toward
+        final int[] targetCell;
+        // for the pattern databases, the name of every tile once the target
+        // is renamed into the goal
+        final int[] rename;
+        final int[] scratch;
+
+        Direction(TileState target, AdditivePatternDatabase pdb) {
+            int size = geometry.getSize();
+            this.pdb = pdb;
+            targetCell = new int[size];
+            rename = new int[size];
+            scratch = new int[size];
+            for (int cell = 0; cell < size; cell++) {
+                targetCell[target.getTile(cell)] = cell;
+                rename[target.getTile(cell)] = geometry.goalTile(cell);
+            }
+        }
+
+        SearchNode root() {
+            return nodes.get(0);
+        }
+
+        void insert(SearchNode root) {
+            SearchNode n = new SearchNode(null, root.getCurState(), 0, h((TileState) root.getCurState()));
+            record(ClosedSet.keyOf(n.getCurState()), ClosedSet.keyHiOf(n.getCurState()), n);
+            push(n);
+        }
+
+        void push(SearchNode n) {
+            int f = n.getFCost();
+            int g = n.getCost();
+            open.push(n, Math.max(f, 2 * g), g);
+            fMin.add(f);
+            gMin.add(g);
+        }
+
+        SearchNode pop() {
+            SearchNode n = open.pop();
+            fMin.remove(n.getFCost());
+            gMin.remove(n.getCost());
+            return n;
+        }
+
+        void record(long key, long hi, SearchNode n) {
+            index.put(key, hi, nodes.size());
+            nodes.add(n);
+        }
+
+        int bestG(long key, long hi) {
+            int position = index.get(key, hi, -1);
+            return position < 0 ? Integer.MAX_VALUE : nodes.get(position).getCost();
+        }
+
+        SearchNode nodeOf(long key, long hi) {
+            int position = index.get(key, hi, -1);
+            return position < 0 ? null : nodes.get(position);
+        }
+
+        /*
+         * h(n) of s toward this direction's target
+         */
+        int h(TileState s) {
+            if (pdb != null) {
+                for (int cell = 0; cell < scratch.length; cell++) {
+                    scratch[rename[s.getTile(cell)]] = cell;
+                }
+                return pdb.h(scratch);
+            }
+            int width = geometry.getWidth();
+            int h = 0;
+            for (int cell = 0; cell < scratch.length; cell++) {
+                int tile = s.getTile(cell);
+                if (tile != 0) {
+                    int target = targetCell[tile];
+                    h += Math.abs(cell / width - target / width) + Math.abs(cell % width - target % width);
+                }
+            }
+            return h;
+        }
+    }
+
+    /*
+     * Multiset of small non-negative ints that tracks its minimum, the
+     * cursor only moving back when a lower value is added.
+     */
+    private static final class MinCounter {
+        private int[] counts = new int[64];
+        private int min = Integer.MAX_VALUE;
+        private int size;
+
+        void add(int value) {
+            if (value >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(value + 1, counts.length * 2));
+            }
+            counts[value]++;
+            if (value < min) {
+                min = value;
+            }
+            size++;
+        }
+
+        void remove(int value) {
+            counts[value]--;
+            if (--size == 0) {
+                min = Integer.MAX_VALUE;
+            }
+        }
+
+        int min() {
+            if (size == 0) {
+                return Integer.MAX_VALUE;
+            }
+            while (counts[min] == 0) {
+                min++;
+            }
+            return min;
+        }
+    }
+}
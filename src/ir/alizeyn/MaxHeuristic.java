@@ -0,0 +1,70 @@
+package ir.alizeyn;
+
+/**
+ * The largest of the values of several heuristics, see
+ * {@link Heuristic#max(Heuristic...)}. Its tracker moves every part's own
+ * tracker, so each part still updates incrementally.
+ */
+class MaxHeuristic implements Heuristic {
+
+    private final Heuristic[] parts;
+
+    MaxHeuristic(Heuristic[] parts) {
+        if (parts.length == 0) {
+            throw new IllegalArgumentException("No heuristic to take the maximum of");
+        }
+        this.parts = parts.clone();
+    }
+
+    @Override
+    public int h(TileState s) {
+        int h = 0;
+        for (Heuristic part : parts) {
+            h = Math.max(h, part.h(s));
+        }
+        return h;
+    }
+
+    @Override
+    public Tracker track(TileState start) {
+        final Tracker[] trackers = new Tracker[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            trackers[i] = parts[i].track(start);
+        }
+        return new Tracker() {
+            @Override
+            public int h() {
+                int h = 0;
+                for (Tracker tracker : trackers) {
+                    h = Math.max(h, tracker.h());
+                }
+                return h;
+            }
+
+            @Override
+            public int move(int tile, int from, int to) {
+                int h = 0;
+                for (Tracker tracker : trackers) {
+                    h = Math.max(h, tracker.move(tile, from, to));
+                }
+                return h;
+            }
+
+            @Override
+            public void undo() {
+                for (Tracker tracker : trackers) {
+                    tracker.undo();
+                }
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        StringBuilder name = new StringBuilder("max(");
+        for (int i = 0; i < parts.length; i++) {
+            name.append(i == 0 ? "" : ",").append(parts[i].getName());
+        }
+        return name.append(')').toString();
+    }
+}
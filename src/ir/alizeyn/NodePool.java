@@ -0,0 +1,181 @@
+package ir.alizeyn;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Search nodes stored as records in parallel primitive arrays instead of
+ * {@link SearchNode} objects. A node is referred to by its int handle, the
+ * index of its record, and links to its parent by the parent's handle, so a
+ * node takes 16 bytes and the garbage collector only ever sees five arrays.
+ * <p>
+ * A record holds the packed board, which must fit a single long (up to 4x4),
+ * the parent handle, g(n) as a short, h(n) as an unsigned byte, and the cell
+ * the hole left on the move into the board, which is the move that would
+ * undo it. Handles are given out in order, so an engine that adds nodes in
+ * the order it expands them can use the pool as its queue.
+ */
+public class NodePool {
+
+    /**
+     * Parent handle of the root, and last move of a board reached by none.
+     */
+    public static final int NONE = -1;
+
+    public static final int MAX_G = Short.MAX_VALUE;
+    public static final int MAX_H = 0xFF;
+
+    private long[] boards;
+    private int[] parents;
+    private short[] gs;
+    private byte[] hs;
+    private byte[] moves;
+    private int size;
+
+    public NodePool() {
+        this(1 << 12);
+    }
+
+    /**
+     * @param expected - the number of nodes expected, used to size the arrays
+     */
+    public NodePool(int expected) {
+        int capacity = Math.max(16, expected);
+        boards = new long[capacity];
+        parents = new int[capacity];
+        gs = new short[capacity];
+        hs = new byte[capacity];
+        moves = new byte[capacity];
+    }
+
+    /**
+     * Stores a node.
+     *
+     * @param board  - the packed board
+     * @param parent - the parent's handle, NONE for a root
+     * @param g      - g(n), at most MAX_G
+     * @param h      - h(n), at most MAX_H
+     * @param move   - the cell the hole left to reach board, NONE for a root
+     * @return the handle of the node
+     */
+    public int add(long board, int parent, int g, int h, int move) {
+        if (g > MAX_G || h > MAX_H) {
+            throw new IllegalStateException("Costs g=" + g + ", h=" + h + " do not fit a pooled node");
+        }
+        if (size == boards.length) {
+            grow();
+        }
+        int handle = size++;
+        boards[handle] = board;
+        parents[handle] = parent;
+        gs[handle] = (short) g;
+        hs[handle] = (byte) h;
+        moves[handle] = (byte) move;
+        return handle;
+    }
+
+    public long board(int handle) {
+        return boards[handle];
+    }
+
+    public int parent(int handle) {
+        return parents[handle];
+    }
+
+    public int g(int handle) {
+        return gs[handle];
+    }
+
+    public int h(int handle) {
+        return hs[handle] & 0xFF;
+    }
+
+    /**
+     * @return the cell the hole left on the move into the node's board, NONE
+     * for a root
+     */
+    public int move(int handle) {
+        return moves[handle];
+    }
+
+    /**
+     * @return the boards from the root to the node, following parent handles
+     */
+    public long[] path(int handle) {
+        int length = 0;
+        for (int n = handle; n != NONE; n = parents[n]) {
+            length++;
+        }
+        long[] path = new long[length];
+        for (int n = handle; n != NONE; n = parents[n]) {
+            path[--length] = boards[n];
+        }
+        return path;
+    }
+
+    /**
+     * @param start - the state the search started from, whose kind of state
+     *              the path is made of
+     * @return the states from the root to the node
+     */
+    public List<State> path(int handle, TileState start) {
+        PuzzleGeometry geometry = PuzzleGeometry.forWidth(start.getWidth());
+        boolean eight = start instanceof EightPuzzleState;
+        List<State> path = new ArrayList<State>();
+        for (long board : path(handle)) {
+            path.add(eight ? new EightPuzzleState(board) : new SlidingTileState(geometry, board, 0));
+        }
+        return path;
+    }
+
+    /**
+     * Copies every node into a checkpoint snapshot.
+     */
+    public void writeTo(Checkpoint.Snapshot out) {
+        out.putInt(size);
+        for (int n = 0; n < size; n++) {
+            out.putLong(boards[n]);
+            out.putInt(parents[n]);
+            out.putShort(gs[n]);
+            out.putByte(hs[n]);
+            out.putByte(moves[n]);
+        }
+    }
+
+    /**
+     * Reads back a pool written by {@link #writeTo(Checkpoint.Snapshot)},
+     * every node keeping its handle.
+     */
+    public static NodePool readFrom(DataInput in) throws IOException {
+        int size = in.readInt();
+        NodePool pool = new NodePool(size + (size >>> 1));
+        for (int n = 0; n < size; n++) {
+            pool.boards[n] = in.readLong();
+            pool.parents[n] = in.readInt();
+            pool.gs[n] = in.readShort();
+            pool.hs[n] = in.readByte();
+            pool.moves[n] = in.readByte();
+        }
+        pool.size = size;
+        return pool;
+    }
+
+    /**
+     * @return the number of nodes stored, which is also the next handle
+     */
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        int capacity = boards.length * 2;
+        boards = Arrays.copyOf(boards, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        gs = Arrays.copyOf(gs, capacity);
+        hs = Arrays.copyOf(hs, capacity);
+        moves = Arrays.copyOf(moves, capacity);
+    }
+}
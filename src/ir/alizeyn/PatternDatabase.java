@@ -0,0 +1,342 @@
+package ir.alizeyn;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+
+/**
+ * A single pattern database: for every placement of a subset of the tiles
+ * (the pattern) it stores the number of moves of pattern tiles needed to bring
+ * them to their goal cells. Moves of the other tiles are free, which is what
+ * makes the values of disjoint patterns add up to an admissible heuristic, see
+ * {@link AdditivePatternDatabase}.
+ * <p>
+ * A placement is indexed by the rank of the pattern tiles' cells as a partial
+ * permutation, so the table holds n!/(n-k)! one byte entries for k pattern
+ * tiles on n cells. Tables are built once by a backward breadth-first search
+ * from the goal and persisted; afterwards they are opened through
+ * {@link FileChannel#map}, so loading costs no generation time and every JVM on
+ * a host shares the same pages of the file.
+ */
+public class PatternDatabase {
+
+    private static final int MAGIC = 0x50444231; // "PDB1"
+    private static final byte UNSEEN = (byte) 0xFF;
+
+    private final PuzzleGeometry geometry;
+    private final int[] tiles;
+    // factor[i] = (n-i-1)! / (n-k)!, the weight of the i-th rank digit
+    private final int[] factor;
+    private final int entries;
+    private final ByteBuffer table;
+
+    private PatternDatabase(PuzzleGeometry geometry, int[] tiles, ByteBuffer table) {
+        this.geometry = geometry;
+        this.tiles = tiles.clone();
+        int n = geometry.getSize();
+        int k = tiles.length;
+        this.factor = new int[k];
+        long entries = 1;
+        for (int i = k - 1; i >= 0; i--) {
+            factor[i] = (int) entries;
+            entries *= n - i;
+        }
+        if (entries * n > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Pattern of " + k + " tiles is too large for a "
+                    + geometry.getWidth() + "x" + geometry.getWidth() + " board");
+        }
+        this.entries = (int) entries;
+        this.table = table;
+    }
+
+    /**
+     * Opens the table of a pattern from file, generating and writing it
+     * first if the file does not exist yet.
+     *
+     * @param geometry - the geometry of the puzzle
+     * @param tiles    - the tiles of the pattern
+     * @param file     - where the table lives
+     */
+    public static PatternDatabase load(PuzzleGeometry geometry, int[] tiles, Path file) throws IOException {
+        if (!Files.exists(file)) {
+            generate(geometry, tiles).write(file);
+        }
+        return open(geometry, tiles, file);
+    }
+
+    /**
+     * Maps an existing table file read-only.
+     */
+    public static PatternDatabase open(PuzzleGeometry geometry, int[] tiles, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int headerSize = headerSize(tiles.length);
+            ByteBuffer header = ByteBuffer.allocate(headerSize).order(ByteOrder.BIG_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is complete
+            }
+            header.flip();
+            if (header.remaining() < headerSize || header.getInt() != MAGIC
+                    || header.getInt() != geometry.getWidth() || header.getInt() != tiles.length) {
+                throw new IOException("Not a pattern database for this puzzle: " + file);
+            }
+            for (int tile : tiles) {
+                if (header.getInt() != tile) {
+                    throw new IOException("Pattern database holds different tiles: " + file);
+                }
+            }
+            PatternDatabase pdb = new PatternDatabase(geometry, tiles, null);
+            if (channel.size() != headerSize + (long) pdb.entries) {
+                throw new IOException("Truncated pattern database: " + file);
+            }
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, headerSize, pdb.entries);
+            return new PatternDatabase(geometry, tiles, table);
+        }
+    }
+
+    /**
+     * Builds the table in memory by a breadth-first search backward from the
+     * goal over (pattern placement, hole cell) pairs. Moving a pattern tile
+     * costs 1 and moving any other tile costs 0, so every level is closed
+     * under free moves before the next one starts.
+     *
+     * @param geometry - the geometry of the puzzle
+     * @param tiles    - the tiles of the pattern
+     */
+    public static PatternDatabase generate(PuzzleGeometry geometry, int[] tiles) {
+        PatternDatabase shape = new PatternDatabase(geometry, tiles, null);
+        int n = geometry.getSize();
+        int k = tiles.length;
+        byte[] pdb = new byte[shape.entries];
+        Arrays.fill(pdb, UNSEEN);
+        // visited (placement, hole) pairs, indexed rank * n + hole
+        long[] seen = new long[(int) (((long) shape.entries * n + 63) >>> 6)];
+
+        int[] positions = new int[k];
+        int[] owner = new int[n];
+        for (int i = 0; i < k; i++) {
+            positions[i] = goalCell(geometry, tiles[i]);
+        }
+        int goalHole = goalCell(geometry, 0);
+        int start = shape.rank(positions) * n + goalHole;
+
+        IntQueue level = new IntQueue();
+        IntQueue next = new IntQueue();
+        level.add(start);
+        int depth = 0;
+        while (!level.isEmpty()) {
+            // level grows while it is drained: free moves stay on this level
+            for (int q = 0; q < level.size(); q++) {
+                int state = level.get(q);
+                // a pair can be queued more than once, only its first visit
+                // is at its true distance
+                if (!mark(seen, state)) {
+                    continue;
+                }
+                int rank = state / n;
+                int hole = state % n;
+                if (pdb[rank] == UNSEEN) {
+                    pdb[rank] = (byte) depth;
+                }
+                shape.unrank(rank, positions);
+                Arrays.fill(owner, -1);
+                for (int i = 0; i < k; i++) {
+                    owner[positions[i]] = i;
+                }
+                for (int from : geometry.getMoves(hole)) {
+                    int tile = owner[from];
+                    int child;
+                    if (tile < 0) {
+                        child = rank * n + from;
+                    } else {
+                        positions[tile] = hole;
+                        child = shape.rank(positions) * n + from;
+                        positions[tile] = from;
+                    }
+                    if (!isMarked(seen, child)) {
+                        (tile < 0 ? level : next).add(child);
+                    }
+                }
+            }
+            IntQueue swap = level;
+            level = next;
+            next = swap;
+            next.clear();
+            depth++;
+        }
+        return new PatternDatabase(geometry, tiles, ByteBuffer.wrap(pdb));
+    }
+
+    /**
+     * Writes the table to file. The data goes to a temporary file that is
+     * then moved into place, so a concurrent reader never sees a partial
+     * table. The temporary file is created readable by its owner alone, so
+     * where the file system has POSIX permissions it is opened up to 0644
+     * first, as a file written directly would be.
+     */
+    public void write(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(headerSize(tiles.length));
+            header.putInt(MAGIC).putInt(geometry.getWidth()).putInt(tiles.length);
+            for (int tile : tiles) {
+                header.putInt(tile);
+            }
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            ByteBuffer data = table.duplicate();
+            data.clear();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+        try {
+            if (tmp.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Files.setPosixFilePermissions(tmp, PosixFilePermissions.fromString("rw-r--r--"));
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    /**
+     * @param positions - the cell of every pattern tile, in pattern order
+     * @return the number of pattern tile moves needed from that placement
+     */
+    public int lookup(int[] positions) {
+        return table.get(rank(positions)) & 0xFF;
+    }
+
+    /**
+     * Looks the pattern up on a full board.
+     *
+     * @param cellOfTile - the cell of every tile, indexed by tile
+     */
+    public int lookupBoard(int[] cellOfTile) {
+        int used = 0;
+        int rank = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            int p = cellOfTile[tiles[i]];
+            rank += (p - Integer.bitCount(used & ((1 << p) - 1))) * factor[i];
+            used |= 1 << p;
+        }
+        return table.get(rank) & 0xFF;
+    }
+
+    /**
+     * @return the tiles of the pattern, must not be modified
+     */
+    public int[] getTiles() {
+        return tiles;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    /*
+     * Rank of the pattern tiles' cells as a partial permutation: each cell is
+     * counted among the cells not taken by an earlier tile.
+     */
+    int rank(int[] positions) {
+        int used = 0;
+        int rank = 0;
+        for (int i = 0; i < positions.length; i++) {
+            int p = positions[i];
+            rank += (p - Integer.bitCount(used & ((1 << p) - 1))) * factor[i];
+            used |= 1 << p;
+        }
+        return rank;
+    }
+
+    void unrank(int rank, int[] positions) {
+        int used = 0;
+        for (int i = 0; i < positions.length; i++) {
+            int digit = rank / factor[i];
+            rank -= digit * factor[i];
+            // the digit-th free cell
+            int p = 0;
+            while (true) {
+                if ((used & (1 << p)) == 0 && digit-- == 0) {
+                    break;
+                }
+                p++;
+            }
+            positions[i] = p;
+            used |= 1 << p;
+        }
+    }
+
+    private static int goalCell(PuzzleGeometry geometry, int tile) {
+        for (int cell = 0; cell < geometry.getSize(); cell++) {
+            if (geometry.goalTile(cell) == tile) {
+                return cell;
+            }
+        }
+        throw new IllegalArgumentException("No such tile: " + tile);
+    }
+
+    private static int headerSize(int k) {
+        return 4 * (3 + k);
+    }
+
+    private static boolean isMarked(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    // sets the bit of index, returns true if it was clear
+    private static boolean mark(long[] bits, int index) {
+        long mask = 1L << index;
+        long word = bits[index >>> 6];
+        if ((word & mask) != 0) {
+            return false;
+        }
+        bits[index >>> 6] = word | mask;
+        return true;
+    }
+
+    /*
+     * Growable int array used as the BFS queues.
+     */
+    private static final class IntQueue {
+        private int[] items = new int[1 << 12];
+        private int size;
+
+        void add(int item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+
+        int get(int i) {
+            return items[i];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
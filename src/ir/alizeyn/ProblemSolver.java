@@ -1,6 +1,7 @@
 package ir.alizeyn;
 
 import java.util.Scanner;
+import java.util.function.Consumer;
 
 public class ProblemSolver {
 
@@ -17,9 +18,9 @@ public class ProblemSolver {
 
         Scanner reader = new Scanner(System.in);
 
-        System.out.println("What is Initial State (example : 0 1 2 3 4 5 6 7 8) : \n");
+        System.out.println("What is Initial State (example : 0 1 2 3 4 5 6 7 8, or 16 / 25 tiles for larger puzzles) : \n");
 
-        int[] startingStateBoard = dispatchEightPuzzle(reader.nextLine().split(" "));
+        TileState startingState = dispatchPuzzle(reader.nextLine().trim().split("\\s+"));
 
         System.out.println("Which Algorithm ?\n" +
                 "1 - dfs\n" +
@@ -27,39 +28,144 @@ public class ProblemSolver {
                 "3 - bds\n" +
                 "4 - ucs\n" +
                 "5 - aso\n" +
-                "6 - rbfs\n");
+                "6 - rbfs (-Dtt.mb)\n" +
+                "7 - asp (pattern databases)\n" +
+                "8 - ida (-Dtt.mb)\n" +
+                "9 - hda (parallel A*)\n" +
+                "10 - table (8puzzle distance table)\n" +
+                "11 - mm (bidirectional A*)\n" +
+                "12 - sma (memory-bounded A*, -Dsma.nodes)\n" +
+                "13 - ebfs (disk-based bfs, -Debfs.dir, -Debfs.partitions)\n" +
+                "14 - wa (weighted A*, -Dwa.weight)\n" +
+                "15 - ara (anytime A*, -Dara.weight, -Dara.millis)\n" +
+                "16 - beam (beam search, -Dbeam.width)\n" +
+                "17 - greedy (greedy best-first, -Dbeam.width)\n" +
+                "18 - idw (ida, linear conflicts and walking distance, -Dtt.mb)\n" +
+                "19 - asd (A* on packed boards through SearchDomain)\n");
 
         int choice = reader.nextInt();
 
+        // snapshots for bfs, aso, rbfs, asp, ida and idw when -Dcheckpoint.file is set
+        Checkpoint checkpoint = Checkpoint.fromProperties();
+        // transposition table for rbfs, ida and idw when -Dtt.mb is set, used
+        // on boards up to 4x4, which fit its entries
+        TranspositionTable table = TranspositionTable.fromProperties();
+
+        SearchResult result;
         switch (choice) {
             case 1:
-                DFSearch.search(startingStateBoard);
+                result = DFSearch.search(startingState, DuplicateDetection.GRAPH);
                 break;
             case 2:
-                BFSearch.search(startingStateBoard);
+                result = BFSearch.search(startingState, DuplicateDetection.GRAPH, checkpoint);
                 break;
             case 3:
-                BDSearch.search(startingStateBoard);
+                result = BDSearch.search(startingState, DuplicateDetection.GRAPH);
                 break;
             case 4:
-                UCSearch.search(startingStateBoard);
+                result = UCSearch.search(startingState, DuplicateDetection.GRAPH);
                 break;
             case 5:
-                AStarSearch.search(startingStateBoard, 'o');
+                result = AStarSearch.search(startingState, 'o', DuplicateDetection.GRAPH, checkpoint);
                 break;
             case 6:
-                RBFSearch.search(startingStateBoard);
+                result = RBFSearch.search(startingState, startingState.getWidth() <= 4
+                                ? AdditivePatternDatabase.forWidth(startingState.getWidth())
+                                : TileCostHeuristic.manhattan(startingState.getWidth()),
+                        table, checkpoint);
                 break;
-
+            case 7:
+                result = AStarSearch.search(startingState, 'p', DuplicateDetection.GRAPH, checkpoint);
+                break;
+            case 8:
+                // pattern databases where there are defaults, Manhattan otherwise
+                result = IDAStarSearch.search(startingState, startingState.getWidth() <= 4
+                                ? AdditivePatternDatabase.forWidth(startingState.getWidth())
+                                : TileCostHeuristic.manhattan(startingState.getWidth()),
+                        table, checkpoint);
+                break;
+            case 9:
+                result = HDAStarSearch.search(startingState, startingState.getWidth() <= 4
+                                ? AdditivePatternDatabase.forWidth(startingState.getWidth()) : null,
+                        Runtime.getRuntime().availableProcessors());
+                break;
+            case 10:
+                result = DistanceTable.search(startingState);
+                break;
+            case 11:
+                result = MMSearch.search(startingState, startingState.getWidth() <= 4
+                        ? AdditivePatternDatabase.forWidth(startingState.getWidth()) : null);
+                break;
+            case 12:
+                result = SMAStarSearch.search(startingState, startingState.getWidth() <= 4
+                                ? AdditivePatternDatabase.forWidth(startingState.getWidth()) : null,
+                        Integer.getInteger(SMAStarSearch.BUDGET_PROPERTY, SMAStarSearch.DEFAULT_BUDGET));
+                break;
+            case 13:
+                result = ExternalBFSearch.search(startingState);
+                break;
+            case 14:
+                result = WeightedAStarSearch.search(startingState, startingState.getWidth() <= 4
+                                ? AdditivePatternDatabase.forWidth(startingState.getWidth()) : null,
+                        Double.parseDouble(System.getProperty(WeightedAStarSearch.WEIGHT_PROPERTY,
+                                String.valueOf(WeightedAStarSearch.DEFAULT_WEIGHT))));
+                break;
+            case 15:
+                result = ARAStarSearch.search(startingState, startingState.getWidth() <= 4
+                                ? AdditivePatternDatabase.forWidth(startingState.getWidth()) : null,
+                        Double.parseDouble(System.getProperty(ARAStarSearch.WEIGHT_PROPERTY,
+                                String.valueOf(ARAStarSearch.DEFAULT_WEIGHT))),
+                        ARAStarSearch.DEFAULT_STEP,
+                        Integer.getInteger(ARAStarSearch.DEADLINE_PROPERTY, ARAStarSearch.DEFAULT_DEADLINE),
+                        new Consumer<SearchResult>() {
+                            @Override
+                            public void accept(SearchResult improved) {
+                                System.out.printf("Found cost %d, at most %.2f times the optimal%n",
+                                        improved.getCost(), improved.getSuboptimalityBound());
+                            }
+                        });
+                break;
+            case 16:
+                result = BeamSearch.search(startingState, startingState.getWidth() <= 4
+                                ? AdditivePatternDatabase.forWidth(startingState.getWidth()) : null,
+                        Integer.getInteger(BeamSearch.WIDTH_PROPERTY, BeamSearch.DEFAULT_WIDTH));
+                break;
+            case 17:
+                result = BeamSearch.greedy(startingState,
+                        Integer.getInteger(BeamSearch.WIDTH_PROPERTY, BeamSearch.DEFAULT_WIDTH));
+                break;
+            case 18:
+                // no walking distance table beyond 4x4
+                result = IDAStarSearch.search(startingState, startingState.getWidth() <= 4
+                        ? Heuristic.max(LinearConflictHeuristic.forWidth(startingState.getWidth()),
+                                WalkingDistanceHeuristic.forWidth(startingState.getWidth()))
+                        : LinearConflictHeuristic.forWidth(startingState.getWidth()), table, checkpoint);
+                break;
+            case 19:
+                result = AStarSearch.search(new TileDomain(startingState));
+                break;
+            default:
+                System.out.println("Unknown algorithm: " + choice);
+                return;
         }
+
+        SolutionPrinter.print(result);
+        SolutionPrinter.printSummary(result, System.out);
     }
 
 
-    private static int[] dispatchEightPuzzle(String[] a) {
-        int[] initState = new int[9];
+    /*
+     * Builds the starting state from the tiles given. 9 tiles make an
+     * 8puzzle, 16 a 15puzzle and 25 a 24puzzle.
+     */
+    private static TileState dispatchPuzzle(String[] a) {
+        int[] initState = new int[a.length];
         for (int i = 0; i < a.length; i++) {
             initState[i] = Integer.parseInt(a[i]);
         }
-        return initState;
+        if (initState.length == EightPuzzleState.PUZZLE_SIZE) {
+            return new EightPuzzleState(initState);
+        }
+        return new SlidingTileState(initState);
     }
 }
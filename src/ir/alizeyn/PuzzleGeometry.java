@@ -0,0 +1,282 @@
+package ir.alizeyn;
+
+/**
+ * Width dependent tables for the sliding tile puzzles: legal moves per hole
+ * position, per tile Manhattan distances and the packed board layout. One
+ * instance exists per width and is shared by every state of that width.
+ * <p>
+ * Boards are packed into at most two longs. Up to 4x4 every cell takes 4 bits
+ * and the whole board fits the low word. A 5x5 board takes 5 bits per cell,
+ * 125 bits in total, with cell i held in bits 5i..5i+4 of the 128 bit
+ * (hi, lo) pair; cell 12 straddles the two words.
+ */
+public final class PuzzleGeometry {
+
+    public static final int MIN_WIDTH = 2;
+    public static final int MAX_WIDTH = 5;
+
+    private static final PuzzleGeometry[] BY_WIDTH = new PuzzleGeometry[MAX_WIDTH + 1];
+
+    static {
+        for (int w = MIN_WIDTH; w <= MAX_WIDTH; w++) {
+            BY_WIDTH[w] = new PuzzleGeometry(w);
+        }
+    }
+
+    private final int width;
+    private final int size;
+    private final int bits;
+    private final long cellMask;
+    private final int[][] moves;
+    private final int[] manDist;
+    private final int[] goal;
+    private final long goalLo;
+    private final long goalHi;
+
+    private PuzzleGeometry(int width) {
+        this.width = width;
+        this.size = width * width;
+        this.bits = width <= 4 ? 4 : 5;
+        this.cellMask = (1L << bits) - 1;
+
+        // left / below / above / right, the order EightPuzzleState uses
+        moves = new int[size][];
+        for (int hole = 0; hole < size; hole++) {
+            int[] tmp = new int[4];
+            int n = 0;
+            if (hole % width != 0) {
+                tmp[n++] = hole - 1;
+            }
+            if (hole < size - width) {
+                tmp[n++] = hole + width;
+            }
+            if (hole >= width) {
+                tmp[n++] = hole - width;
+            }
+            if (hole % width != width - 1) {
+                tmp[n++] = hole + 1;
+            }
+            moves[hole] = new int[n];
+            System.arraycopy(tmp, 0, moves[hole], 0, n);
+        }
+
+        manDist = new int[size * size];
+        for (int tile = 1; tile < size; tile++) {
+            int val = tile - 1;
+            for (int cell = 0; cell < size; cell++) {
+                manDist[tile * size + cell] = Math.abs(val / width - cell / width)
+                        + Math.abs(val % width - cell % width);
+            }
+        }
+
+        goal = new int[size];
+        for (int i = 0; i < size - 1; i++) {
+            goal[i] = i + 1;
+        }
+        long lo = 0;
+        long hi = 0;
+        for (int i = 0; i < size; i++) {
+            lo = withCellLo(lo, i, goal[i]);
+            hi = withCellHi(hi, i, goal[i]);
+        }
+        goalLo = lo;
+        goalHi = hi;
+    }
+
+    /**
+     * @param width - the number of cells per row, between MIN_WIDTH and MAX_WIDTH
+     * @return the shared geometry for that width
+     */
+    public static PuzzleGeometry forWidth(int width) {
+        if (width < MIN_WIDTH || width > MAX_WIDTH) {
+            throw new IllegalArgumentException("Unsupported puzzle width: " + width);
+        }
+        return BY_WIDTH[width];
+    }
+
+    /**
+     * @param cells - the number of cells on the board, a perfect square
+     * @return the shared geometry for a board of that many cells
+     */
+    public static PuzzleGeometry forSize(int cells) {
+        int width = (int) Math.round(Math.sqrt(cells));
+        if (width * width != cells) {
+            throw new IllegalArgumentException("Not a square board: " + cells + " cells");
+        }
+        return forWidth(width);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the number of cells on the board
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return true if a packed board needs the high word as well
+     */
+    public boolean isWide() {
+        return size * bits > 64;
+    }
+
+    /**
+     * The cells whose tile can slide into a hole at the given index. The
+     * returned array is shared and must not be modified.
+     */
+    public int[] getMoves(int hole) {
+        return moves[hole];
+    }
+
+    /**
+     * @return the Manhattan distance of tile from its goal cell when it is on
+     * cell, 0 for the hole
+     */
+    public int manDist(int tile, int cell) {
+        return manDist[tile * size + cell];
+    }
+
+    /**
+     * @return the tile that belongs on cell in the goal board, 0 for the hole
+     */
+    public int goalTile(int cell) {
+        return goal[cell];
+    }
+
+    public long getGoalLo() {
+        return goalLo;
+    }
+
+    public long getGoalHi() {
+        return goalHi;
+    }
+
+    /**
+     * @return the tile on cell of the packed board (hi, lo)
+     */
+    public int get(long lo, long hi, int cell) {
+        int b = cell * bits;
+        if (b + bits <= 64) {
+            return (int) ((lo >>> b) & cellMask);
+        }
+        if (b >= 64) {
+            return (int) ((hi >>> (b - 64)) & cellMask);
+        }
+        return (int) (((lo >>> b) | (hi << (64 - b))) & cellMask);
+    }
+
+    /**
+     * @return lo with the low word part of cell set to tile
+     */
+    public long withCellLo(long lo, int cell, int tile) {
+        int b = cell * bits;
+        if (b >= 64) {
+            return lo;
+        }
+        return (lo & ~(cellMask << b)) | ((long) tile << b);
+    }
+
+    /**
+     * @return hi with the high word part of cell set to tile
+     */
+    public long withCellHi(long hi, int cell, int tile) {
+        int b = cell * bits;
+        if (b + bits <= 64) {
+            return hi;
+        }
+        if (b >= 64) {
+            return (hi & ~(cellMask << (b - 64))) | ((long) tile << (b - 64));
+        }
+        int inLo = 64 - b;
+        long m = (1L << (bits - inLo)) - 1;
+        return (hi & ~m) | ((long) tile >>> inLo);
+    }
+
+    /**
+     * The key of the packed board (hi, lo) for hash sets and maps. Up to 4x4
+     * it is the board itself. On 5x5 it is a hash of both words, and for a
+     * given high word each step of the hash can be undone, so the key and hi
+     * together tell any two boards apart.
+     */
+    public long key(long lo, long hi) {
+        if (!isWide()) {
+            return lo;
+        }
+        long h = lo ^ (hi * 0xC2B2AE3D27D4EB4FL);
+        h ^= h >>> 31;
+        h *= 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * Slides the tile on cell from into the hole of a board that fits a
+     * single word.
+     *
+     * @return the packed board after the move, whose hole is at from
+     */
+    public long slide(long board, int hole, int from) {
+        long tile = (board >>> (from * bits)) & cellMask;
+        return (board & ~(cellMask << (from * bits))) | (tile << (hole * bits));
+    }
+
+    /**
+     * Locates the hole of a board that fits a single word without scanning
+     * the cells, using the "find the zero nibble" bit trick.
+     *
+     * @return the index of the hole
+     */
+    public int holeOf(long board) {
+        if (bits != 4) {
+            return holeOf(board, 0);
+        }
+        long x = size == 16 ? board : board | (-1L << (4 * size));
+        long zero = (x - 0x1111111111111111L) & ~x & 0x8888888888888888L;
+        return Long.numberOfTrailingZeros(zero) >>> 2;
+    }
+
+    /**
+     * @return the index of the hole of the packed board (hi, lo)
+     */
+    public int holeOf(long lo, long hi) {
+        for (int cell = 0; cell < size; cell++) {
+            if (get(lo, hi, cell) == 0) {
+                return cell;
+            }
+        }
+        throw new IllegalArgumentException("Board has no hole");
+    }
+
+    /**
+     * Packs a linear board into two words.
+     *
+     * @param cells - the board as a linear array of getSize() cells
+     * @return the packed board as {lo, hi}
+     */
+    public long[] pack(int[] cells) {
+        if (cells.length != size) {
+            throw new IllegalArgumentException("Expected " + size + " cells, got " + cells.length);
+        }
+        long lo = 0;
+        long hi = 0;
+        for (int i = 0; i < size; i++) {
+            lo = withCellLo(lo, i, cells[i]);
+            hi = withCellHi(hi, i, cells[i]);
+        }
+        return new long[]{lo, hi};
+    }
+
+    /**
+     * Unpacks the packed board (hi, lo) into a new linear array.
+     */
+    public int[] unpack(long lo, long hi) {
+        int[] cells = new int[size];
+        for (int i = 0; i < size; i++) {
+            cells[i] = get(lo, hi, i);
+        }
+        return cells;
+    }
+}
@@ -1,113 +1,460 @@
 package ir.alizeyn;
 
-import java.util.*;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 
+/**
+ * Defines a Recursive Best-First Search for the sliding tile puzzles. RBFS
+ * explores the best child below an f(n) limit set by the best alternative,
+ * and when it backs out it replaces the child's f(n) with the lowest f(n)
+ * found under it, so memory stays linear in the solution depth.
+ * <p>
+ * The recursion is kept in an explicit stack of frames, one per depth, so
+ * deep searches cannot overflow the Java stack. A frame holds its children in
+ * fixed arrays, at most four, and picks the best and the second best by a
+ * scan instead of a sort. As in {@link IDAStarSearch} the search works on a
+ * single mutable board, never tries the move that undoes the previous one,
+ * and has a {@link Heuristic.Tracker} update h(n) from the moved tile alone.
+ * Moves are counted as in IDA*, and the solution reported optimal likewise.
+ * <p>
+ * The frames are the whole state of the search, so with a {@link Checkpoint}
+ * a snapshot is a copy of the frames down to the current depth. A resumed
+ * search restores them and remakes the chosen moves to get the board back.
+ * <p>
+ * With a {@link TranspositionTable} a board backed out of is recorded with its
+ * g(n) and a lower bound on its distance to the goal, one move more than the
+ * lowest bound of its neighbours, the board the move came from included at
+ * its h(n). A child already recorded with fewer moves is given an infinite
+ * f(n) and never explored, and the others start from their recorded bound
+ * when it is above their h(n). The bounds of the children are kept apart
+ * from their f(n), which RBFS backs up from the subtree explored alone.
+ */
 public class RBFSearch {
 
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final int MAX_CHILDREN = 4;
+
+    private final PuzzleGeometry geometry;
+    private final Heuristic.Tracker tracker;
+    private final SearchStatistics stats;
+
+    private final int[] cells;
+    private int hole;
+    // the packed board, kept when there is a transposition table
+    private long board;
+    private final TranspositionTable table;
+
+    // per depth: the hole cell of the board, its h(n) and the f(n) limit of
+    // the frame
+    private int[] holeAt = new int[64];
+    private int[] hAt = new int[64];
+    private int[] limit = new int[64];
+    // per depth, per child: the cell the hole moves to, the backed up f(n),
+    // h(n) and the lower bound on its distance to the goal
+    private int[][] childFrom = new int[64][];
+    private int[][] childF = new int[64][];
+    private int[][] childH = new int[64][];
+    private int[][] childBound = new int[64][];
+    private int[] childCount = new int[64];
+    // the child being explored below each depth
+    private int[] chosen = new int[64];
+    // children held by all frames
+    private long held;
+
+    private final TileState start;
+    private final Checkpoint checkpoint;
+    private final String checkpointEngine;
+
+    private RBFSearch(TileState start, Heuristic heuristic, TranspositionTable table,
+                      Checkpoint checkpoint, SearchStatistics stats) {
+        this.stats = stats;
+        this.start = start;
+        this.checkpoint = checkpoint;
+        this.checkpointEngine = "RBFS/" + heuristic.getName();
+        this.geometry = PuzzleGeometry.forWidth(start.getWidth());
+        // a 5x5 board does not fit an entry, so it is searched without one
+        this.table = geometry.isWide() ? null : table;
+        this.tracker = heuristic.track(start);
+        int size = geometry.getSize();
+        cells = new int[size];
+        for (int cell = 0; cell < size; cell++) {
+            cells[cell] = start.getTile(cell);
+            if (cells[cell] == 0) {
+                hole = cell;
+            }
+        }
+        allocate(0, childFrom.length);
+        if (this.table != null) {
+            board = start.key();
+            table.prepare(board);
+        }
+    }
+
     /**
-     * Initialization function for 8puzzle A*Search
+     * Initialization function for 8puzzle RBFSearch with the Manhattan
+     * distance
      *
      * @param board - The starting state, represented as a linear array of length
      *              9 forming 3 meta-rows.
      */
-    public static void search(int[] board) {
-        SearchNode root = new SearchNode(new EightPuzzleState(board));
-        Stack<SearchNode> s = new Stack<>();
-        s.add(root);
+    public static SearchResult search(int[] board) {
+        return search(new EightPuzzleState(board), null);
+    }
 
-        SearchNode tempNode = s.pop();
-        rbfs(tempNode, Integer.MAX_VALUE);
+    /**
+     * Initialization function for RBFSearch on any sliding tile puzzle
+     *
+     * @param start - The starting state
+     * @param pdb   - pattern databases for the start's width, or null to use
+     *              the Manhattan distance
+     */
+    public static SearchResult search(TileState start, AdditivePatternDatabase pdb) {
+        return search(start, pdb, null);
     }
 
-    private static double rbfs(SearchNode node, double fLimit) {
+    /**
+     * Initialization function for RBFSearch taking snapshots on the way
+     *
+     * @param start      - The starting state
+     * @param pdb        - pattern databases for the start's width, or null to
+     *                   use the Manhattan distance
+     * @param checkpoint - where snapshots go and are resumed from, or null
+     */
+    public static SearchResult search(TileState start, AdditivePatternDatabase pdb, Checkpoint checkpoint) {
+        return search(start, pdb == null ? TileCostHeuristic.manhattan(start.getWidth()) : pdb, checkpoint);
+    }
 
-        if (node.getCurState().isGoal()) {
-            success(node);
-        }
+    /**
+     * Initialization function for RBFSearch with any heuristic
+     *
+     * @param start     - The starting state
+     * @param heuristic - h(n), followed incrementally through the moves
+     */
+    public static SearchResult search(TileState start, Heuristic heuristic) {
+        return search(start, heuristic, null);
+    }
+
+    /**
+     * Initialization function for RBFSearch with any heuristic, taking
+     * snapshots on the way
+     *
+     * @param start      - The starting state
+     * @param heuristic  - h(n), followed incrementally through the moves
+     * @param checkpoint - where snapshots go and are resumed from, or null
+     */
+    public static SearchResult search(TileState start, Heuristic heuristic, Checkpoint checkpoint) {
+        return search(start, heuristic, null, checkpoint);
+    }
 
-        ArrayList<State> tempSuccessors = node.getCurState()
-                .genSuccessors();
-        ArrayList<SearchNode> nodeSuccessors = new ArrayList<>();
+    /**
+     * Initialization function for RBFSearch with any heuristic and a
+     * transposition table, taking snapshots on the way
+     *
+     * @param start      - The starting state
+     * @param heuristic  - h(n), followed incrementally through the moves
+     * @param table      - boards backed out of before, or null; not used on
+     *                   5x5
+     * @param checkpoint - where snapshots go and are resumed from, or null
+     */
+    public static SearchResult search(TileState start, Heuristic heuristic, TranspositionTable table,
+                                      Checkpoint checkpoint) {
+        SearchStatistics stats = new SearchStatistics("RBFS");
+        RBFSearch search = new RBFSearch(start, heuristic, table, checkpoint, stats);
+        int depth = search.run();
+        if (checkpoint != null) {
+            checkpoint.finish();
+        }
+        if (depth < 0) {
+            return SearchResult.notFound(stats);
+        }
+        int[] holes = new int[depth];
+        for (int i = 0; i < depth; i++) {
+            holes[i] = search.holeAt[i + 1];
+        }
+        return SearchResult.found(IDAStarSearch.replay(start, holes, depth), SearchResult.unitCost(start), stats);
+    }
 
-        for (State tempSuccessor : tempSuccessors) {
-            SearchNode checkedNode;
+    /*
+     * Runs the search. Every descent from the root counts as an iteration,
+     * its bound being the f-limit it is given.
+     *
+     * @return the solution length, or -1 if there is none
+     */
+    private int run() {
+        int d = resume();
+        if (d < 0) {
+            int h = tracker.h();
+            holeAt[0] = hole;
+            hAt[0] = h;
+            if (h == 0 && isGoal()) {
+                return 0;
+            }
+            limit[0] = INFINITY;
+            expand(0, h, h);
+            d = 0;
+        }
 
-            checkedNode = new SearchNode(node,
-                    tempSuccessor,
-                    node.getCost() + tempSuccessor.findCost(),
-                    ((EightPuzzleState) tempSuccessor).getOutOfPlace());
+        while (true) {
+            if (checkpoint != null && checkpoint.isDue()) {
+                save(d);
+            }
 
+            // the best and second best child of the frame
+            int n = childCount[d];
+            int[] f = childF[d];
+            int best = -1;
+            int alternative = INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (best < 0 || f[i] < f[best]) {
+                    if (best >= 0) {
+                        alternative = f[best];
+                    }
+                    best = i;
+                } else if (f[i] < alternative) {
+                    alternative = f[i];
+                }
+            }
 
-            if (!checkRepeats(checkedNode)) {
-                nodeSuccessors.add(checkedNode);
+            if (best < 0 || f[best] > limit[d] || f[best] == INFINITY) {
+                // back out, passing the lowest f(n) found up to the parent
+                int backedUp = best < 0 ? INFINITY : f[best];
+                held -= n;
+                if (d == 0) {
+                    return -1;
+                }
+                if (table != null) {
+                    record(d);
+                }
+                d--;
+                unmake(d);
+                childF[d][chosen[d]] = backedUp;
+                if (d == 0) {
+                    stats.iterationDone(backedUp);
+                }
+                continue;
             }
-        }
 
-        if (nodeSuccessors.size() == 0) {
-            return Integer.MAX_VALUE;
+            int childLimit = Math.min(limit[d], alternative);
+            if (d == 0) {
+                stats.iterationStart(childLimit);
+            }
+            chosen[d] = best;
+            make(d, best);
+            d++;
+            if (d == childFrom.length) {
+                grow();
+            }
+            holeAt[d] = hole;
+            hAt[d] = childH[d - 1][best];
+            if (childH[d - 1][best] == 0 && isGoal()) {
+                if (d == 1) {
+                    stats.iterationDone(-1);
+                }
+                return d;
+            }
+            limit[d] = childLimit;
+            expand(d, childH[d - 1][best], f[best]);
         }
+    }
 
-        nodeSuccessors.sort((o1, o2) -> (int) (o1.getFCost() - o2.getFCost()));
-        SearchNode lowestNode = nodeSuccessors.get(0);
+    /*
+     * Fills the frame at depth d with the children of the current board.
+     *
+     * @param h      - h(n) of the current board
+     * @param stored - the f(n) the board was entered with, above its own
+     *               f(n) when backed up from an earlier visit
+     */
+    private void expand(int d, int h, int stored) {
+        stats.expanded();
+        int[] from = childFrom[d];
+        int[] f = childF[d];
+        int[] hs = childH[d];
+        int[] bounds = childBound[d];
+        // children of a board seen before inherit its backed up value
+        boolean inherit = stored > d + h;
+        int prevHole = d == 0 ? -1 : holeAt[d - 1];
+        int n = 0;
+        for (int cell : geometry.getMoves(hole)) {
+            // moving the tile back where it came from only undoes the last move
+            if (cell == prevHole) {
+                stats.duplicate();
+                continue;
+            }
+            int tile = cells[cell];
+            stats.generated();
 
-        while (lowestNode.getFCost() <= fLimit && lowestNode.getFCost() < Integer.MAX_VALUE) {
+            long t = stats.heuristicStart();
+            int h2 = tracker.move(tile, cell, hole);
+            tracker.undo();
+            stats.heuristicDone(t);
 
-            double newFLimit;
-            if (nodeSuccessors.size() > 1) {
-                SearchNode alternative = nodeSuccessors.get(1);
-                newFLimit = Math.min(fLimit, alternative.getFCost());
-            } else {
-                newFLimit = fLimit;
+            from[n] = cell;
+            hs[n] = h2;
+            f[n] = inherit ? Math.max(d + 1 + h2, stored) : d + 1 + h2;
+            bounds[n] = h2;
+            if (table != null) {
+                int entry = table.probe(geometry.slide(board, hole, cell));
+                if (entry != TranspositionTable.MISSING) {
+                    bounds[n] = Math.max(h2, TranspositionTable.bound(entry));
+                    if (TranspositionTable.g(entry) < d + 1) {
+                        // backed out of before from fewer moves
+                        stats.duplicate();
+                        f[n] = INFINITY;
+                    } else {
+                        f[n] = Math.max(f[n], d + 1 + bounds[n]);
+                    }
+                }
             }
-            double newFCost = rbfs(lowestNode, newFLimit);
-            lowestNode.setFCost(newFCost);
+            n++;
+        }
+        childCount[d] = n;
+        held += n;
+        stats.openSize(held);
+    }
 
-            nodeSuccessors.sort((o1, o2) -> (int) (o1.getFCost() - o2.getFCost()));
-            lowestNode = nodeSuccessors.get(0);
+    /*
+     * Moves the board of depth d to its child i.
+     */
+    private void make(int d, int i) {
+        int from = childFrom[d][i];
+        int to = hole;
+        int tile = cells[from];
+        cells[to] = tile;
+        cells[from] = 0;
+        if (table != null) {
+            board = geometry.slide(board, to, from);
         }
+        hole = from;
+        tracker.move(tile, from, to);
+    }
 
-        return lowestNode.getFCost();
+    /*
+     * Moves the board back from the chosen child to depth d.
+     */
+    private void unmake(int d) {
+        int from = childFrom[d][chosen[d]];
+        int to = holeAt[d];
+        int tile = cells[to];
+        cells[from] = tile;
+        cells[to] = 0;
+        if (table != null) {
+            board = geometry.slide(board, from, to);
+        }
+        hole = to;
+        tracker.undo();
     }
 
-    private static boolean checkRepeats(SearchNode n) {
-        boolean retValue = false;
-        SearchNode checkNode = n;
+    /*
+     * Records the board at depth d, about to be backed out of, and passes
+     * its bound to the parent frame.
+     */
+    private void record(int d) {
+        int lowest = hAt[d - 1] + 1;
+        for (int i = 0; i < childCount[d]; i++) {
+            lowest = Math.min(lowest, childBound[d][i] + 1);
+        }
+        int bound = Math.max(hAt[d], lowest);
+        table.store(board, d, bound);
+        int[] parent = childBound[d - 1];
+        parent[chosen[d - 1]] = Math.max(parent[chosen[d - 1]], bound);
+    }
 
-        // While n's parent isn't null, check to see if it's equal to the node
-        // we're looking for.
-        while (n.getParent() != null && !retValue) {
-            if (n.getParent().getCurState().equals(checkNode.getCurState())) {
-                retValue = true;
+    /*
+     * Snapshot of the frames down to depth d.
+     */
+    private void save(int d) {
+        Checkpoint.Snapshot out = checkpoint.begin(checkpointEngine, start);
+        out.putInt(d);
+        out.putLong(held);
+        for (int k = 0; k <= d; k++) {
+            out.putByte(holeAt[k]);
+            out.putInt(limit[k]);
+            out.putByte(k < d ? chosen[k] : 0);
+            out.putByte(childCount[k]);
+            for (int i = 0; i < childCount[k]; i++) {
+                out.putByte(childFrom[k][i]);
+                out.putInt(childF[k][i]);
+                out.putInt(childH[k][i]);
             }
-            n = n.getParent();
         }
-
-        return retValue;
+        checkpoint.save(out);
     }
 
-
-    private static void success(SearchNode node) {
-        Stack<SearchNode> solutionPath = new Stack<>();
-        solutionPath.push(node);
-        node = node.getParent();
-
-        while (node.getParent() != null) {
-            solutionPath.push(node);
-            node = node.getParent();
+    /*
+     * Restores the frames and the board from the snapshot of an earlier
+     * run, if any.
+     *
+     * @return the depth of the snapshot, -1 without one
+     */
+    private int resume() {
+        DataInputStream in = checkpoint == null ? null : checkpoint.resume(checkpointEngine, start);
+        if (in == null) {
+            return -1;
+        }
+        int d;
+        try {
+            d = in.readInt();
+            held = in.readLong();
+            while (d >= childFrom.length) {
+                grow();
+            }
+            for (int k = 0; k <= d; k++) {
+                holeAt[k] = in.readByte();
+                limit[k] = in.readInt();
+                chosen[k] = in.readByte();
+                childCount[k] = in.readByte();
+                for (int i = 0; i < childCount[k]; i++) {
+                    childFrom[k][i] = in.readByte();
+                    childF[k][i] = in.readInt();
+                    childH[k][i] = in.readInt();
+                    childBound[k][i] = childH[k][i];
+                }
+            }
+            in.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        hAt[0] = tracker.h();
+        for (int k = 0; k < d; k++) {
+            make(k, chosen[k]);
+            hAt[k + 1] = childH[k][chosen[k]];
         }
-        solutionPath.push(node);
+        return d;
+    }
 
-        int loopSize = solutionPath.size();
+    private void grow() {
+        int length = childFrom.length;
+        int newLength = length * 2;
+        holeAt = Arrays.copyOf(holeAt, newLength);
+        hAt = Arrays.copyOf(hAt, newLength);
+        limit = Arrays.copyOf(limit, newLength);
+        childFrom = Arrays.copyOf(childFrom, newLength);
+        childF = Arrays.copyOf(childF, newLength);
+        childH = Arrays.copyOf(childH, newLength);
+        childBound = Arrays.copyOf(childBound, newLength);
+        childCount = Arrays.copyOf(childCount, newLength);
+        chosen = Arrays.copyOf(chosen, newLength);
+        allocate(length, newLength);
+    }
 
-        for (int i = 0; i < loopSize; i++) {
-            node = solutionPath.pop();
-            node.getCurState().printState();
-            System.out.println();
-            System.out.println();
+    // the child arrays of the frames from..to-1
+    private void allocate(int from, int to) {
+        for (int d = from; d < to; d++) {
+            childFrom[d] = new int[MAX_CHILDREN];
+            childF[d] = new int[MAX_CHILDREN];
+            childH[d] = new int[MAX_CHILDREN];
+            childBound[d] = new int[MAX_CHILDREN];
         }
-        System.out.println("The cost was: " + node.getCost());
-        System.exit(0);
     }
 
-
+    private boolean isGoal() {
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] != geometry.goalTile(cell)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
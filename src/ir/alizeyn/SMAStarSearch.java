@@ -0,0 +1,338 @@
+package ir.alizeyn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Defines a Simplified Memory-bounded A* search (SMA*, Russell 1992) for the
+ * sliding tile puzzles. The search never holds more than a fixed number of
+ * nodes: it expands the best leaf one successor at a time, and when the budget
+ * is used up it evicts the worst leaf, the shallowest one with the highest
+ * f(n). The evicted f(n) is remembered by its parent, which backs the lowest
+ * f(n) of its successors up into its own, so a forgotten subtree is only
+ * regenerated once everything else looks worse.
+ * <p>
+ * A path of budget nodes is the deepest the tree can hold, so nodes at that
+ * depth are cut off with an infinite f(n). The solution returned is the best
+ * one that fits the budget; it is reported optimal unless a cut off node
+ * could have led to a cheaper one, or the board is an 8puzzle, where the
+ * fewest moves are not always the cheapest path.
+ */
+public class SMAStarSearch {
+
+    /**
+     * Node budget used by ProblemSolver, overridable with -Dsma.nodes.
+     */
+    public static final String BUDGET_PROPERTY = "sma.nodes";
+
+    public static final int DEFAULT_BUDGET = 1000000;
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    // an entry of Node.childF for a successor never generated yet
+    private static final int UNSEEN = -1;
+
+    // open leaves by lowest f(n) first, the deepest first among equals
+    private static final Comparator<Node> ORDER = new Comparator<Node>() {
+        @Override
+        public int compare(Node a, Node b) {
+            if (a.f != b.f) {
+                return a.f < b.f ? -1 : 1;
+            }
+            if (a.depth != b.depth) {
+                return a.depth > b.depth ? -1 : 1;
+            }
+            return Long.compare(a.id, b.id);
+        }
+    };
+
+    private final AdditivePatternDatabase pdb;
+    private final int budget;
+    private final SearchStatistics stats;
+
+    private final TreeSet<Node> open = new TreeSet<Node>(ORDER);
+    private int used;
+    private long nextId;
+    // lowest f(n) replaced by infinity because the budget could not hold it
+    private int lowestCut = INFINITY;
+
+    private SMAStarSearch(AdditivePatternDatabase pdb, int budget, SearchStatistics stats) {
+        this.pdb = pdb;
+        this.budget = budget;
+        this.stats = stats;
+    }
+
+    /**
+     * Initialization function for 8puzzle SMA*Search with the Manhattan
+     * distance and the default node budget
+     *
+     * @param board - The starting state, represented as a linear array of length
+     *              9 forming 3 meta-rows.
+     */
+    public static SearchResult search(int[] board) {
+        return search(new EightPuzzleState(board), null, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Initialization function for SMA*Search on any sliding tile puzzle
+     *
+     * @param start    - The starting state
+     * @param pdb      - pattern databases for the start's width, or null to
+     *                 use the Manhattan distance
+     * @param maxNodes - the most nodes held at any time, at least 2
+     */
+    public static SearchResult search(TileState start, AdditivePatternDatabase pdb, int maxNodes) {
+        if (maxNodes < 2) {
+            throw new IllegalArgumentException("SMA* needs room for at least 2 nodes");
+        }
+        SearchStatistics stats = new SearchStatistics("SMA*");
+        SMAStarSearch search = new SMAStarSearch(pdb, maxNodes, stats);
+        Node goal = search.run(start);
+        if (goal == null) {
+            return SearchResult.notFound(stats);
+        }
+
+        List<State> path = new ArrayList<State>();
+        for (Node n = goal; n != null; n = n.parent) {
+            path.add(n.state);
+        }
+        Collections.reverse(path);
+        return SearchResult.found(path, goal.g <= search.lowestCut && SearchResult.unitCost(start), stats);
+    }
+
+    /*
+     * @return the goal node, or null if no solution fits the budget
+     */
+    private Node run(TileState start) {
+        Node root = new Node(null, -1, start, 0, h(start));
+        root.f = root.g + root.h;
+        used = 1;
+        open.add(root);
+        stats.openSize(1);
+
+        while (!open.isEmpty()) {
+            Node best = open.first();
+            if (best.f == INFINITY) {
+                return null;
+            }
+            if (best.state.isGoal()) {
+                return best;
+            }
+
+            if (best.children == null) {
+                int n = best.state.successorCount();
+                best.children = new Node[n];
+                best.childF = new int[n];
+                Arrays.fill(best.childF, UNSEEN);
+                stats.expanded();
+            }
+            int slot = nextSlot(best);
+            boolean forgotten = best.childF[slot] != UNSEEN;
+            // only the one successor is made, so nothing outside the budget
+            // is kept between steps
+            TileState state = best.state.genSuccessor(slot);
+            stats.generated();
+
+            Node child = null;
+            if (onPath(best, state.key(), state.keyHi())) {
+                // a cycle, never part of a shortest path
+                stats.duplicate();
+            } else {
+                if (forgotten) {
+                    stats.reopened();
+                }
+                long t = stats.heuristicStart();
+                int h = h(state);
+                stats.heuristicDone(t);
+                child = new Node(best, slot, state, best.g + 1, h);
+                child.f = Math.max(best.f, child.g + h);
+                if (forgotten) {
+                    child.f = Math.max(child.f, best.childF[slot]);
+                }
+                if (!state.isGoal() && child.depth >= budget - 1) {
+                    // its children would not fit
+                    cut(child);
+                }
+                if (child.f != INFINITY && used == budget && !evict(best)) {
+                    cut(child);
+                }
+            }
+
+            if (child == null || child.f == INFINITY) {
+                // remembered by best without taking up a node
+                best.childF[slot] = INFINITY;
+            } else {
+                best.children[slot] = child;
+                best.childF[slot] = child.f;
+                best.inMemory++;
+                used++;
+                open.add(child);
+            }
+            if (best.inMemory + deadSlots(best) == best.children.length) {
+                // nothing left to generate from best while all are held
+                open.remove(best);
+            }
+            backUp(best);
+            release(best);
+
+            stats.openSize(open.size());
+            stats.closedSize(used);
+        }
+        return null;
+    }
+
+    /*
+     * The successor of n to generate next: the first never generated, or
+     * else the forgotten one with the lowest backed up f(n).
+     */
+    private static int nextSlot(Node n) {
+        int slot = -1;
+        for (int i = 0; i < n.childF.length; i++) {
+            if (n.childF[i] == UNSEEN) {
+                return i;
+            }
+            if (n.children[i] == null && n.childF[i] != INFINITY
+                    && (slot < 0 || n.childF[i] < n.childF[slot])) {
+                slot = i;
+            }
+        }
+        return slot;
+    }
+
+    /*
+     * Successors that are not held and will never be generated again.
+     */
+    private static int deadSlots(Node n) {
+        int dead = 0;
+        for (int i = 0; i < n.childF.length; i++) {
+            if (n.children[i] == null && n.childF[i] == INFINITY) {
+                dead++;
+            }
+        }
+        return dead;
+    }
+
+    private void cut(Node n) {
+        lowestCut = Math.min(lowestCut, n.f);
+        n.f = INFINITY;
+    }
+
+    /*
+     * Drops the worst leaf other than keep, the parent about to receive a
+     * child, and makes its parent remember the leaf's f(n).
+     *
+     * @return false if there is no leaf to drop
+     */
+    private boolean evict(Node keep) {
+        Iterator<Node> worst = open.descendingIterator();
+        while (worst.hasNext()) {
+            Node n = worst.next();
+            if (n == keep || n.parent == null || n.inMemory > 0) {
+                continue;
+            }
+            worst.remove();
+            Node parent = n.parent;
+            parent.children[n.slot] = null;
+            parent.childF[n.slot] = n.f;
+            parent.inMemory--;
+            used--;
+            // the parent has a successor to regenerate again
+            if (n.f != INFINITY) {
+                open.add(parent);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     * Frees n and then its ancestors for as long as they hold no successor
+     * and have no successor left that could lead to the goal.
+     */
+    private void release(Node n) {
+        while (n.parent != null && n.f == INFINITY && n.inMemory == 0) {
+            open.remove(n);
+            n.parent.children[n.slot] = null;
+            n.parent.childF[n.slot] = INFINITY;
+            n.parent.inMemory--;
+            used--;
+            n = n.parent;
+        }
+    }
+
+    /*
+     * Once every successor of n has been generated, f(n) is the lowest f(n)
+     * among them, held or forgotten. A change is passed up to the parents.
+     */
+    private void backUp(Node n) {
+        while (n != null && n.children != null) {
+            int f = INFINITY;
+            for (int i = 0; i < n.childF.length; i++) {
+                if (n.childF[i] == UNSEEN) {
+                    return;
+                }
+                f = Math.min(f, n.childF[i]);
+            }
+            if (f == n.f) {
+                return;
+            }
+            boolean queued = open.remove(n);
+            n.f = f;
+            if (queued) {
+                open.add(n);
+            }
+            if (n.parent != null) {
+                n.parent.childF[n.slot] = f;
+            }
+            n = n.parent;
+        }
+    }
+
+    private static boolean onPath(Node n, long key, long hi) {
+        for (Node p = n; p != null; p = p.parent) {
+            if (p.state.key() == key && p.state.keyHi() == hi) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int h(TileState s) {
+        return pdb == null ? s.getManDist() : pdb.h(s);
+    }
+
+    /*
+     * A node of the search tree. A successor is either held in children, or
+     * forgotten with its last f(n) in childF, or not generated yet.
+     */
+    private final class Node {
+        final Node parent;
+        // index of this node among its parent's successors
+        final int slot;
+        final TileState state;
+        final int g;
+        final int h;
+        final int depth;
+        final long id;
+        int f;
+
+        Node[] children;
+        int[] childF;
+        int inMemory;
+
+        Node(Node parent, int slot, TileState state, int g, int h) {
+            this.parent = parent;
+            this.slot = slot;
+            this.state = state;
+            this.g = g;
+            this.h = h;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+            this.id = nextId++;
+        }
+    }
+}
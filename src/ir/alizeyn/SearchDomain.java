@@ -0,0 +1,89 @@
+package ir.alizeyn;
+
+import java.util.Arrays;
+
+/**
+ * A search problem as the primitive engines see it, the counterpart of
+ * {@link State} without objects. A state is a long, its key: equal states
+ * have equal keys and different states different keys, so engines hash,
+ * compare and store states as longs. Successors are written into a
+ * {@link Successors} buffer the engine reuses from one expansion to the
+ * next, each with the integer cost of the move and its h(n), which the
+ * domain may update from the parent's. Engines only ever call the domain, so
+ * each call site sees a single domain class.
+ * <p>
+ * {@link TileDomain} is the sliding tile puzzles on packed boards, and
+ * {@link StateDomain} adapts any State, numbering the states it meets, so
+ * other problems plug into the same engines.
+ */
+public interface SearchDomain {
+
+    /**
+     * @return the state the search starts from
+     */
+    long start();
+
+    boolean isGoal(long state);
+
+    /**
+     * @return h(n) of a state, admissible for the engines to stay optimal
+     */
+    int h(long state);
+
+    /**
+     * Writes the successors of a state into out, which is emptied first.
+     *
+     * @param h - h(n) of state, as h() or the buffer gave it
+     */
+    void successors(long state, int h, Successors out);
+
+    /**
+     * @return the State of a key, to report solutions in
+     */
+    State toState(long state);
+
+    /**
+     * The successors of a state: for each, its key, the cost of the move to
+     * it and its h(n), in parallel arrays that grow as needed and are kept
+     * from one use to the next.
+     */
+    final class Successors {
+
+        private long[] states = new long[8];
+        private int[] costs = new int[8];
+        private int[] hs = new int[8];
+        private int size;
+
+        public void add(long state, int cost, int h) {
+            if (size == states.length) {
+                states = Arrays.copyOf(states, size * 2);
+                costs = Arrays.copyOf(costs, size * 2);
+                hs = Arrays.copyOf(hs, size * 2);
+            }
+            states[size] = state;
+            costs[size] = cost;
+            hs[size] = h;
+            size++;
+        }
+
+        public long state(int i) {
+            return states[i];
+        }
+
+        public int cost(int i) {
+            return costs[i];
+        }
+
+        public int h(int i) {
+            return hs[i];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public void clear() {
+            size = 0;
+        }
+    }
+}
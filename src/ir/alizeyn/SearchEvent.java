@@ -0,0 +1,56 @@
+package ir.alizeyn;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event committed at the end of every search, carrying its
+ * {@link SearchStatistics}.
+ */
+@Name("ir.alizeyn.Search")
+@Label("Search")
+@Category("Puzzle Search")
+@Description("A completed search and the work it took")
+class SearchEvent extends jdk.jfr.Event {
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Solved")
+    boolean solved;
+
+    @Label("Cost")
+    int cost;
+
+    @Label("Nodes Generated")
+    long nodesGenerated;
+
+    @Label("Nodes Expanded")
+    long nodesExpanded;
+
+    @Label("Duplicates Pruned")
+    long duplicatesPruned;
+
+    @Label("Nodes Reopened")
+    long nodesReopened;
+
+    @Label("Peak Open")
+    long peakOpen;
+
+    @Label("Peak Closed")
+    long peakClosed;
+
+    @Label("Iterations")
+    int iterations;
+
+    @Label("Heuristic Time")
+    @Timespan
+    long heuristicNanos;
+
+    @Label("Search Time")
+    @Timespan
+    long durationNanos;
+}
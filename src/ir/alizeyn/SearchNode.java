@@ -2,7 +2,9 @@ package ir.alizeyn;
 
 /**
  * Class to represent a SearchNode. This will be a wrapper for a State, and
- * track the cost to get to that state and the state's parent node.
+ * track the cost to get to that state and the state's parent node. Step costs
+ * are small integers, so costs are held as ints and can index bucket queues
+ * directly.
  *
  * @author Michael Langston && Gabe Ferrer
  */
@@ -10,9 +12,9 @@ public class SearchNode {
 
     private State curState;
     private SearchNode parent;
-    private double cost; // cost to get to this state
-    private double hCost; // heuristic cost
-    private double fCost; // f(n) cost
+    private int cost; // cost to get to this state
+    private int hCost; // heuristic cost
+    private int fCost; // f(n) cost
 
     /**
      * Constructor for the root SearchNode
@@ -35,7 +37,7 @@ public class SearchNode {
      * @param c    the g(n) cost to get to this node
      * @param h    the h(n) cost to get to this node
      */
-    public SearchNode(SearchNode prev, State s, double c, double h) {
+    public SearchNode(SearchNode prev, State s, int c, int h) {
         parent = prev;
         curState = s;
         cost = c;
@@ -60,25 +62,25 @@ public class SearchNode {
     /**
      * @return the cost
      */
-    public double getCost() {
+    public int getCost() {
         return cost;
     }
 
     /**
      * @return the heuristic cost
      */
-    public double getHCost() {
+    public int getHCost() {
         return hCost;
     }
 
     /**
      * @return the f(n) cost for A*
      */
-    public double getFCost() {
+    public int getFCost() {
         return fCost;
     }
 
-    public void setFCost(double fCost) {
+    public void setFCost(int fCost) {
         this.fCost = fCost;
     }
 
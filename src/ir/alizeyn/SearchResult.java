@@ -0,0 +1,213 @@
+package ir.alizeyn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a search: the solution path, its cost and how much work the
+ * engine did to find it. Engines return one instead of printing, so a solver
+ * can be embedded and run many times in one JVM. See {@link SolutionPrinter}
+ * for the console output.
+ * <p>
+ * The cost is always the one of {@link #pathCost(List)}, each move costing
+ * findCost() of the state it enters: the number of moves on the sliding tile
+ * puzzles, the tile weighted cost on the 8puzzle. It is worked out from the
+ * path here, so results of different engines on one board compare. Engines
+ * that minimise the number of moves only report an optimal solution where
+ * the two agree, see {@link #unitCost(State)}.
+ */
+public class SearchResult {
+
+    private final List<State> path;
+    private final int cost;
+    private final double bound;
+    private final SearchStatistics statistics;
+
+    private SearchResult(List<State> path, int cost, double bound, SearchStatistics statistics) {
+        this.path = Collections.unmodifiableList(path);
+        this.cost = cost;
+        this.bound = bound;
+        this.statistics = statistics;
+        // a snapshot of a running search is stopped already
+        if (statistics.getElapsedNanos() < 0) {
+            statistics.finish(cost);
+        }
+    }
+
+    /**
+     * Result for a goal node, the path being recovered from its parents.
+     *
+     * @param optimal - whether the engine guarantees no cheaper path exists
+     */
+    public static SearchResult found(SearchNode goal, boolean optimal, SearchStatistics statistics) {
+        return found(pathTo(goal), optimal, statistics);
+    }
+
+    /**
+     * Result for a goal node found by an engine that bounds how far its
+     * solution may be from the optimal one, the path being recovered from its
+     * parents.
+     *
+     * @param bound - the solution costs at most bound times the optimal, 1
+     *              if it is optimal, infinite if the engine guarantees
+     *              nothing
+     */
+    public static SearchResult bounded(SearchNode goal, double bound, SearchStatistics statistics) {
+        List<State> path = pathTo(goal);
+        return new SearchResult(path, pathCost(path), bound, statistics);
+    }
+
+    /**
+     * Result for a solution path the engine built itself.
+     *
+     * @param path    - the states from the start to the goal
+     * @param optimal - whether the engine guarantees no cheaper path exists
+     */
+    public static SearchResult found(List<State> path, boolean optimal, SearchStatistics statistics) {
+        return new SearchResult(path, pathCost(path), optimal ? 1 : Double.POSITIVE_INFINITY, statistics);
+    }
+
+    /**
+     * Result for a search that ran out of nodes.
+     */
+    public static SearchResult notFound(SearchStatistics statistics) {
+        return new SearchResult(new ArrayList<State>(), -1, Double.POSITIVE_INFINITY, statistics);
+    }
+
+    /**
+     * Whether every move from start costs 1, so that a path of fewest moves
+     * is also a cheapest one. Moves on the 8puzzle cost findCost() of the
+     * board they lead to, and nothing is assumed of problems other than the
+     * sliding tile puzzles, so engines that only count moves cannot claim an
+     * optimal solution there.
+     */
+    public static boolean unitCost(State start) {
+        return start instanceof TileState && !(start instanceof EightPuzzleState);
+    }
+
+    /**
+     * @return the states from the root to node, following parent links
+     */
+    public static List<State> pathTo(SearchNode node) {
+        List<State> path = new ArrayList<State>();
+        for (SearchNode n = node; n != null; n = n.getParent()) {
+            path.add(n.getCurState());
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Joins the half-paths of a bidirectional search that met on one board:
+     * the forward half from the start ends in forward, the backward half from
+     * the goal ends in backward, both nodes holding the meeting board.
+     *
+     * @param backward - null when the forward half already reaches the goal
+     * @return the states from the start to the goal
+     */
+    public static List<State> splice(SearchNode forward, SearchNode backward) {
+        List<State> path = pathTo(forward);
+        // backward's own state is already the end of the forward half
+        for (SearchNode n = backward == null ? null : backward.getParent(); n != null; n = n.getParent()) {
+            path.add(n.getCurState());
+        }
+        return path;
+    }
+
+    /**
+     * @return the cost of moving along path, each step costing the findCost()
+     * of the state it enters
+     */
+    public static int pathCost(List<State> path) {
+        int cost = 0;
+        for (int i = 1; i < path.size(); i++) {
+            cost += (int) path.get(i).findCost();
+        }
+        return cost;
+    }
+
+    public boolean isSolved() {
+        return !path.isEmpty();
+    }
+
+    /**
+     * @return the states from the start to the goal, empty if not solved
+     */
+    public List<State> getPath() {
+        return path;
+    }
+
+    /**
+     * For sliding tile puzzles, the tile moved at every step of the path.
+     *
+     * @return the tiles in move order, empty if not solved
+     */
+    public int[] getMoves() {
+        int[] moves = new int[Math.max(0, path.size() - 1)];
+        for (int i = 0; i < moves.length; i++) {
+            TileState from = (TileState) path.get(i);
+            TileState to = (TileState) path.get(i + 1);
+            int cell = 0;
+            while (from.getTile(cell) != 0) {
+                cell++;
+            }
+            // the moved tile now sits where the hole was
+            moves[i] = to.getTile(cell);
+        }
+        return moves;
+    }
+
+    /**
+     * @return true if the engine guarantees that no cheaper solution exists,
+     * false for engines such as DFS that return the first solution they meet
+     */
+    public boolean isOptimal() {
+        return bound <= 1;
+    }
+
+    /**
+     * @return a factor the cost of the solution is guaranteed to stay
+     * within, relative to the optimal: 1 for an optimal solution, w for
+     * Weighted A* with weight w, infinite if the engine guarantees nothing
+     */
+    public double getSuboptimalityBound() {
+        return bound;
+    }
+
+    /**
+     * @return the cost of the path, -1 if not solved
+     */
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * @return the counters of the search that produced this result
+     */
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    public long getNodesExpanded() {
+        return statistics.getNodesExpanded();
+    }
+
+    public long getNodesGenerated() {
+        return statistics.getNodesGenerated();
+    }
+
+    /**
+     * @return the largest size the open list reached
+     */
+    public long getPeakFrontier() {
+        return statistics.getPeakOpen();
+    }
+
+    /**
+     * @return wall clock time of the search
+     */
+    public long getElapsedNanos() {
+        return statistics.getElapsedNanos();
+    }
+}
@@ -0,0 +1,234 @@
+package ir.alizeyn;
+
+/**
+ * Counters kept by an engine during one search: nodes generated, expanded,
+ * pruned as duplicates and re-opened, the peak sizes of the open and closed
+ * lists and the time spent evaluating h(n). A {@link SearchEvent} is
+ * committed to JDK Flight Recorder when the search finishes, and iterative
+ * engines commit an {@link IterationEvent} per iteration.
+ * <p>
+ * The counters are plain field increments. Timing h(n) calls System.nanoTime
+ * twice per evaluation, so it only happens when the JVM is started with
+ * -Dsearch.stats=true; the check is on a static final and is compiled away
+ * otherwise. The events cost nothing unless a recording enables them.
+ */
+public class SearchStatistics {
+
+    /**
+     * Whether heuristic evaluation is timed, set by -Dsearch.stats=true.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("search.stats");
+
+    private final String engine;
+    private final long startNanos;
+    private long elapsedNanos = -1;
+
+    private long generated;
+    private long expanded;
+    private long duplicates;
+    private long reopened;
+    private long peakOpen;
+    private long peakClosed;
+    private long heuristicNanos;
+
+    private int iterations;
+    private int bound;
+    private long iterationStartNanos;
+    private long iterationExpanded;
+    private long iterationGenerated;
+
+    /**
+     * Starts the clock of a search.
+     *
+     * @param engine - name of the engine, as reported in the events
+     */
+    public SearchStatistics(String engine) {
+        this(engine, System.nanoTime());
+    }
+
+    private SearchStatistics(String engine, long startNanos) {
+        this.engine = engine;
+        this.startNanos = startNanos;
+    }
+
+    public void generated() {
+        generated++;
+    }
+
+    public void expanded() {
+        expanded++;
+    }
+
+    /**
+     * A node dropped because its board was already known at no greater cost.
+     */
+    public void duplicate() {
+        duplicates++;
+    }
+
+    /**
+     * A node queued again because a cheaper path to its board was found.
+     */
+    public void reopened() {
+        reopened++;
+    }
+
+    public void openSize(long size) {
+        if (size > peakOpen) {
+            peakOpen = size;
+        }
+    }
+
+    public void closedSize(long size) {
+        if (size > peakClosed) {
+            peakClosed = size;
+        }
+    }
+
+    /**
+     * Call before evaluating h(n) and hand the value returned to
+     * {@link #heuristicDone(long)} afterwards.
+     */
+    public long heuristicStart() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public void heuristicDone(long start) {
+        if (ENABLED) {
+            heuristicNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Starts an iteration of IDA* or RBFS.
+     *
+     * @param bound - the f(n) bound of the iteration
+     */
+    public void iterationStart(int bound) {
+        this.bound = bound;
+        iterationStartNanos = System.nanoTime();
+        iterationExpanded = expanded;
+        iterationGenerated = generated;
+    }
+
+    /**
+     * Ends the iteration started last and commits its event.
+     *
+     * @param nextBound - the bound of the following iteration, -1 if none
+     */
+    public void iterationDone(int nextBound) {
+        iterations++;
+        IterationEvent event = new IterationEvent();
+        if (event.isEnabled()) {
+            event.engine = engine;
+            event.iteration = iterations;
+            event.bound = bound;
+            event.nextBound = nextBound;
+            event.nodesExpanded = expanded - iterationExpanded;
+            event.nodesGenerated = generated - iterationGenerated;
+            event.durationNanos = System.nanoTime() - iterationStartNanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Adds the counts of other, a part of the same search run by another
+     * thread. Peak sizes are summed, which bounds the peak of the whole.
+     */
+    public void merge(SearchStatistics other) {
+        generated += other.generated;
+        expanded += other.expanded;
+        duplicates += other.duplicates;
+        reopened += other.reopened;
+        peakOpen += other.peakOpen;
+        peakClosed += other.peakClosed;
+        heuristicNanos += other.heuristicNanos;
+    }
+
+    /**
+     * Copies the counters of a search still running, for a result handed out
+     * before it ends. The copy's clock is already stopped and no event is
+     * committed for it.
+     */
+    SearchStatistics snapshot() {
+        SearchStatistics copy = new SearchStatistics(engine, startNanos);
+        copy.merge(this);
+        copy.iterations = iterations;
+        copy.elapsedNanos = System.nanoTime() - startNanos;
+        return copy;
+    }
+
+    /**
+     * Stops the clock and commits the search event.
+     *
+     * @param cost - the cost of the solution, -1 if none was found
+     */
+    void finish(int cost) {
+        elapsedNanos = System.nanoTime() - startNanos;
+        SearchEvent event = new SearchEvent();
+        if (event.isEnabled()) {
+            event.engine = engine;
+            event.solved = cost >= 0;
+            event.cost = cost;
+            event.nodesGenerated = generated;
+            event.nodesExpanded = expanded;
+            event.duplicatesPruned = duplicates;
+            event.nodesReopened = reopened;
+            event.peakOpen = peakOpen;
+            event.peakClosed = peakClosed;
+            event.iterations = iterations;
+            event.heuristicNanos = heuristicNanos;
+            event.durationNanos = elapsedNanos;
+            event.commit();
+        }
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public long getNodesGenerated() {
+        return generated;
+    }
+
+    public long getNodesExpanded() {
+        return expanded;
+    }
+
+    public long getDuplicatesPruned() {
+        return duplicates;
+    }
+
+    public long getNodesReopened() {
+        return reopened;
+    }
+
+    public long getPeakOpen() {
+        return peakOpen;
+    }
+
+    public long getPeakClosed() {
+        return peakClosed;
+    }
+
+    /**
+     * @return time spent in h(n), 0 unless {@link #ENABLED}
+     */
+    public long getHeuristicNanos() {
+        return heuristicNanos;
+    }
+
+    /**
+     * @return the number of iterations, 0 for engines that have none
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return wall clock time of the search, -1 while it is running
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
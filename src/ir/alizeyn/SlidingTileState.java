@@ -0,0 +1,273 @@
+package ir.alizeyn;
+
+import java.util.ArrayList;
+
+/**
+ * SlidingTileState defines a state for the sliding tile puzzle of any width
+ * supported by {@link PuzzleGeometry}, the 15puzzle (4x4) and 24puzzle (5x5)
+ * in particular. As in EightPuzzleState the board is linear, '0' is the hole
+ * and the goal has the tiles in order with the hole on the last cell.
+ * <p>
+ * The board is packed into one long up to 4x4 and into two for 5x5, and all
+ * per width data comes from the shared geometry. Every move costs 1, so the
+ * engines minimise the number of moves.
+ */
+public class SlidingTileState implements TileState {
+
+    private final PuzzleGeometry geometry;
+    private final long lo;
+    private final long hi;
+    private final int hole;
+
+    private int manDist = 0;
+    private int outOfPlace = 0;
+
+    /**
+     * Constructor for SlidingTileState
+     *
+     * @param board - the board as a linear array, its length a perfect square
+     */
+    public SlidingTileState(int[] board) {
+        this(PuzzleGeometry.forSize(board.length), board);
+    }
+
+    private SlidingTileState(PuzzleGeometry geometry, int[] board) {
+        this(geometry, geometry.pack(board));
+    }
+
+    private SlidingTileState(PuzzleGeometry geometry, long[] packed) {
+        this(geometry, packed[0], packed[1]);
+    }
+
+    /**
+     * Constructor for SlidingTileState from an already packed board
+     *
+     * @param geometry - the geometry of the board's width
+     * @param lo       - the low word of the packed board
+     * @param hi       - the high word, 0 up to 4x4
+     */
+    public SlidingTileState(PuzzleGeometry geometry, long lo, long hi) {
+        this.geometry = geometry;
+        this.lo = lo;
+        this.hi = hi;
+        this.hole = geometry.holeOf(lo, hi);
+        for (int cell = 0; cell < geometry.getSize(); cell++) {
+            int tile = geometry.get(lo, hi, cell);
+            manDist += geometry.manDist(tile, cell);
+            if (tile != 0 && tile != geometry.goalTile(cell)) {
+                outOfPlace++;
+            }
+        }
+    }
+
+    /*
+     * Constructor for a successor whose values were derived from its parent
+     */
+    private SlidingTileState(PuzzleGeometry geometry, long lo, long hi, int hole,
+                             int manDist, int outOfPlace) {
+        this.geometry = geometry;
+        this.lo = lo;
+        this.hi = hi;
+        this.hole = hole;
+        this.manDist = manDist;
+        this.outOfPlace = outOfPlace;
+    }
+
+    /**
+     * Every move costs the same
+     */
+    @Override
+    public double findCost() {
+        return 1;
+    }
+
+    /**
+     * Generates the successors by sliding every tile next to the hole into
+     * it. The heuristics of each successor are updated from this state's
+     * values.
+     *
+     * @return an ArrayList containing all of the successors for that state
+     */
+    @Override
+    public ArrayList<State> genSuccessors() {
+        int n = geometry.getMoves(hole).length;
+        ArrayList<State> successors = new ArrayList<State>(n);
+        for (int i = 0; i < n; i++) {
+            successors.add(genSuccessor(i));
+        }
+        return successors;
+    }
+
+    @Override
+    public int successorCount() {
+        return geometry.getMoves(hole).length;
+    }
+
+    /**
+     * The successor that slides the tile on getMoves(hole)[i] of the
+     * geometry into the hole.
+     */
+    @Override
+    public SlidingTileState genSuccessor(int i) {
+        int from = geometry.getMoves(hole)[i];
+        int tile = geometry.get(lo, hi, from);
+        long newLo = geometry.withCellLo(geometry.withCellLo(lo, from, 0), hole, tile);
+        long newHi = geometry.withCellHi(geometry.withCellHi(hi, from, 0), hole, tile);
+        int goal = geometry.goalTile(hole);
+        int misplaced = (tile == goal ? 0 : 1) - (tile == geometry.goalTile(from) ? 0 : 1);
+        return new SlidingTileState(geometry, newLo, newHi, from,
+                manDist + geometry.manDist(tile, hole) - geometry.manDist(tile, from),
+                outOfPlace + misplaced);
+    }
+
+    /**
+     * Allocation free successor generation for boards that fit one word,
+     * see {@link #genSuccessors(long[], long[])} for 5x5. The i-th successor
+     * has its hole at getMoves(hole)[i] of the geometry.
+     *
+     * @param buffer - receives the packed successors, at least 4 long
+     * @return the number of successors written
+     */
+    public int genSuccessors(long[] buffer) {
+        if (geometry.isWide()) {
+            throw new IllegalStateException("Board does not fit a single word, use genSuccessors(long[], long[])");
+        }
+        int[] moves = geometry.getMoves(hole);
+        for (int i = 0; i < moves.length; i++) {
+            buffer[i] = geometry.slide(lo, hole, moves[i]);
+        }
+        return moves.length;
+    }
+
+    /**
+     * Allocation free successor generation for boards of any width. The
+     * i-th successor has its hole at getMoves(hole)[i] of the geometry.
+     *
+     * @param los - receives the low words of the successors, at least 4 long
+     * @param his - receives their high words, 0 up to 4x4, at least 4 long
+     * @return the number of successors written
+     */
+    public int genSuccessors(long[] los, long[] his) {
+        int[] moves = geometry.getMoves(hole);
+        for (int i = 0; i < moves.length; i++) {
+            int from = moves[i];
+            int tile = geometry.get(lo, hi, from);
+            los[i] = geometry.withCellLo(geometry.withCellLo(lo, from, 0), hole, tile);
+            his[i] = geometry.withCellHi(geometry.withCellHi(hi, from, 0), hole, tile);
+        }
+        return moves.length;
+    }
+
+    @Override
+    public boolean isGoal() {
+        return lo == geometry.getGoalLo() && hi == geometry.getGoalHi();
+    }
+
+    /**
+     * Prints the board, last row first as EightPuzzleState does.
+     */
+    @Override
+    public void printState() {
+        int width = geometry.getWidth();
+        StringBuilder separator = new StringBuilder();
+        for (int i = 0; i < width * 5 - 3; i++) {
+            separator.append('-');
+        }
+        for (int row = width - 1; row >= 0; row--) {
+            StringBuilder line = new StringBuilder();
+            for (int x = 0; x < width; x++) {
+                if (x > 0) {
+                    line.append(" | ");
+                }
+                int tile = geometry.get(lo, hi, row * width + x);
+                line.append(tile < 10 ? " " : "").append(tile);
+            }
+            System.out.println(line);
+            if (row > 0) {
+                System.out.println(separator);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(State s) {
+        SlidingTileState other = (SlidingTileState) s;
+        return lo == other.lo && hi == other.hi && geometry == other.geometry;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SlidingTileState && equals((State) o);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(key());
+    }
+
+    @Override
+    public int getWidth() {
+        return geometry.getWidth();
+    }
+
+    /**
+     * Up to 4x4 the key is the packed board itself. A 5x5 board needs 125
+     * bits, so its key is a 64 bit hash of both words, which keyHi()
+     * completes, see {@link PuzzleGeometry#key(long, long)}.
+     */
+    @Override
+    public long key() {
+        return geometry.key(lo, hi);
+    }
+
+    @Override
+    public long keyHi() {
+        return geometry.isWide() ? hi : 0;
+    }
+
+    @Override
+    public int getTile(int cell) {
+        return geometry.get(lo, hi, cell);
+    }
+
+    @Override
+    public TileState goal() {
+        return new SlidingTileState(geometry, geometry.getGoalLo(), geometry.getGoalHi());
+    }
+
+    @Override
+    public int getManDist() {
+        return manDist;
+    }
+
+    /**
+     * @return the number of tiles, not counting the hole, off their goal cell
+     */
+    @Override
+    public int getOutOfPlace() {
+        return outOfPlace;
+    }
+
+    public int getHole() {
+        return hole;
+    }
+
+    public PuzzleGeometry getGeometry() {
+        return geometry;
+    }
+
+    public long getLo() {
+        return lo;
+    }
+
+    public long getHi() {
+        return hi;
+    }
+
+    /**
+     * @return the board as a new linear array
+     */
+    public int[] getCurBoard() {
+        return geometry.unpack(lo, hi);
+    }
+}
@@ -0,0 +1,60 @@
+package ir.alizeyn;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Console rendering of a {@link SearchResult}: every board of the solution
+ * path followed by its cost, as the engines used to print on their own.
+ */
+public class SolutionPrinter {
+
+    /**
+     * Prints result to System.out.
+     */
+    public static void print(SearchResult result) {
+        if (!result.isSolved()) {
+            // This should never happen with our current puzzles.
+            System.out.println("Error! No solution found!");
+            return;
+        }
+        for (State state : result.getPath()) {
+            state.printState();
+            System.out.println();
+            System.out.println();
+        }
+        System.out.println("The cost was: " + result.getCost());
+    }
+
+    /**
+     * Prints the moves and the search statistics of result, one line each.
+     */
+    public static void printSummary(SearchResult result, PrintStream out) {
+        if (result.isSolved() && result.getPath().get(0) instanceof TileState) {
+            out.println("Moves: " + Arrays.toString(result.getMoves()));
+        }
+        SearchStatistics stats = result.getStatistics();
+        out.println("Cost: " + result.getCost()
+                + ", expanded: " + stats.getNodesExpanded()
+                + ", generated: " + stats.getNodesGenerated()
+                + ", duplicates: " + stats.getDuplicatesPruned()
+                + ", reopened: " + stats.getNodesReopened()
+                + ", peak open: " + stats.getPeakOpen()
+                + ", peak closed: " + stats.getPeakClosed()
+                + ", time: " + stats.getElapsedNanos() / 1000000 + " ms");
+        if (result.isSolved() && !result.isOptimal()) {
+            double bound = result.getSuboptimalityBound();
+            if (Double.isInfinite(bound)) {
+                out.println("The solution is not guaranteed to be optimal");
+            } else {
+                out.printf("The solution costs at most %.2f times the optimal%n", bound);
+            }
+        }
+        if (stats.getIterations() > 0) {
+            out.println("Iterations: " + stats.getIterations());
+        }
+        if (SearchStatistics.ENABLED) {
+            out.println("Heuristic time: " + stats.getHeuristicNanos() / 1000 + " us");
+        }
+    }
+}
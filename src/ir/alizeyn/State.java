@@ -6,6 +6,10 @@ import java.util.ArrayList;
  * State interface from which problem states inherit. Defines a method to check
  * if the current state is a goal, generate successors, and find the cost to
  * come to the current state.
+ * <p>
+ * Engines that hash states and avoid allocating per node work on a
+ * {@link SearchDomain} instead, which a State is adapted to by
+ * {@link StateDomain}.
  *
  * @author Michael Langston && Gabe Ferrer
  */
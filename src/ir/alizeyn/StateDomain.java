@@ -0,0 +1,86 @@
+package ir.alizeyn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Adapts a problem written against {@link State} to {@link SearchDomain}.
+ * State has no hash of its own, so the adapter is given a key for states,
+ * which must tell different states apart, and a heuristic. The states met are
+ * numbered in the order they are first generated, and the domain's keys are
+ * those numbers, so a state is only ever made once by genSuccessors() and
+ * the engines never see the objects. Moves cost findCost() of the state they
+ * lead to, rounded down to an integer.
+ */
+public class StateDomain implements SearchDomain {
+
+    private final ToLongFunction<State> key;
+    private final ToIntFunction<State> heuristic;
+
+    // the states met, by number, and the number of every key
+    private final List<State> states = new ArrayList<State>();
+    private final LongIntHashMap numberOf = new LongIntHashMap(1 << 12);
+
+    /**
+     * @param start     - the starting state
+     * @param key       - a key per state, different for different states
+     * @param heuristic - h(n) of a state
+     */
+    public StateDomain(State start, ToLongFunction<State> key, ToIntFunction<State> heuristic) {
+        this.key = key;
+        this.heuristic = heuristic;
+        numberOf(start);
+    }
+
+    @Override
+    public long start() {
+        return 0;
+    }
+
+    @Override
+    public boolean isGoal(long state) {
+        return states.get((int) state).isGoal();
+    }
+
+    @Override
+    public int h(long state) {
+        return heuristic.applyAsInt(states.get((int) state));
+    }
+
+    @Override
+    public void successors(long state, int h, Successors out) {
+        out.clear();
+        ArrayList<State> successors = states.get((int) state).genSuccessors();
+        for (int i = 0; i < successors.size(); i++) {
+            State successor = successors.get(i);
+            int number = numberOf(successor);
+            out.add(number, (int) successor.findCost(), heuristic.applyAsInt(successor));
+        }
+    }
+
+    @Override
+    public State toState(long state) {
+        return states.get((int) state);
+    }
+
+    /**
+     * @return the number of states met so far
+     */
+    public int size() {
+        return states.size();
+    }
+
+    // the number of a state, numbering it if it is new
+    private int numberOf(State s) {
+        long k = key.applyAsLong(s);
+        int number = numberOf.get(k, -1);
+        if (number < 0) {
+            number = states.size();
+            states.add(s);
+            numberOf.put(k, number);
+        }
+        return number;
+    }
+}
@@ -0,0 +1,103 @@
+package ir.alizeyn;
+
+/**
+ * Heuristics that sum a cost of every tile on its cell: the Manhattan
+ * distance, and the number of tiles out of place. A move only changes the
+ * cost of the moved tile, so the tracker updates h(n) with one table lookup
+ * per cell.
+ */
+public class TileCostHeuristic implements Heuristic {
+
+    private static final TileCostHeuristic[] MANHATTAN = new TileCostHeuristic[PuzzleGeometry.MAX_WIDTH + 1];
+    private static final TileCostHeuristic[] OUT_OF_PLACE = new TileCostHeuristic[PuzzleGeometry.MAX_WIDTH + 1];
+
+    private final String name;
+    private final boolean manhattan;
+    private final int size;
+    // cost of tile t on cell c at t * size + c
+    private final int[] cost;
+
+    private TileCostHeuristic(PuzzleGeometry geometry, boolean manhattan) {
+        this.name = manhattan ? "manhattan" : "out-of-place";
+        this.manhattan = manhattan;
+        this.size = geometry.getSize();
+        this.cost = new int[size * size];
+        for (int tile = 1; tile < size; tile++) {
+            for (int cell = 0; cell < size; cell++) {
+                cost[tile * size + cell] = manhattan ? geometry.manDist(tile, cell)
+                        : geometry.goalTile(cell) == tile ? 0 : 1;
+            }
+        }
+    }
+
+    /**
+     * @return the Manhattan distance for boards of the given width
+     */
+    public static synchronized TileCostHeuristic manhattan(int width) {
+        if (MANHATTAN[width] == null) {
+            MANHATTAN[width] = new TileCostHeuristic(PuzzleGeometry.forWidth(width), true);
+        }
+        return MANHATTAN[width];
+    }
+
+    /**
+     * @return the number of tiles out of place for boards of the given width
+     */
+    public static synchronized TileCostHeuristic outOfPlace(int width) {
+        if (OUT_OF_PLACE[width] == null) {
+            OUT_OF_PLACE[width] = new TileCostHeuristic(PuzzleGeometry.forWidth(width), false);
+        }
+        return OUT_OF_PLACE[width];
+    }
+
+    /**
+     * The states keep their Manhattan distance up to date, so it is read
+     * from the state. Tiles out of place are counted here, as the 8puzzle
+     * state counts the hole among them.
+     */
+    @Override
+    public int h(TileState s) {
+        if (manhattan) {
+            return s.getManDist();
+        }
+        int h = 0;
+        for (int cell = 0; cell < size; cell++) {
+            h += cost[s.getTile(cell) * size + cell];
+        }
+        return h;
+    }
+
+    @Override
+    public Tracker track(TileState start) {
+        int h = 0;
+        for (int cell = 0; cell < size; cell++) {
+            h += cost[start.getTile(cell) * size + cell];
+        }
+        final int startH = h;
+        return new Tracker() {
+            private int h = startH;
+
+            @Override
+            public int h() {
+                return h;
+            }
+
+            @Override
+            public int move(int tile, int from, int to) {
+                push(h);
+                h += cost[tile * size + to] - cost[tile * size + from];
+                return h;
+            }
+
+            @Override
+            public void undo() {
+                h = pop();
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
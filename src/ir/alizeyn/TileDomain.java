@@ -0,0 +1,126 @@
+package ir.alizeyn;
+
+import java.util.Arrays;
+
+/**
+ * The sliding tile puzzles as a {@link SearchDomain}: a successor is one move
+ * away, and h(n) the Manhattan distance, updated from the moved tile. Moves
+ * cost what findCost() of the board's State says, which is 1 except on the
+ * 8puzzle.
+ * <p>
+ * Up to 4x4 a state is the packed board itself, a successor one
+ * {@link PuzzleGeometry#slide} away. A 5x5 board takes two words, so, as in
+ * {@link StateDomain}, its boards are numbered in the order they are first
+ * generated and a state is that number.
+ */
+public class TileDomain implements SearchDomain {
+
+    private final PuzzleGeometry geometry;
+    private final TileState start;
+    private final boolean eight;
+    private final boolean wide;
+
+    // the two words of every numbered 5x5 board, and the number of every
+    // board by its key
+    private long[] los;
+    private long[] his;
+    private int count;
+    private final LongIntHashMap numberOf;
+
+    /**
+     * @param start - the starting state
+     */
+    public TileDomain(TileState start) {
+        this.geometry = PuzzleGeometry.forWidth(start.getWidth());
+        this.start = start;
+        this.eight = start instanceof EightPuzzleState;
+        this.wide = geometry.isWide();
+        if (wide) {
+            los = new long[1 << 12];
+            his = new long[1 << 12];
+            numberOf = new LongIntHashMap(1 << 12);
+            int[] cells = new int[geometry.getSize()];
+            for (int cell = 0; cell < cells.length; cell++) {
+                cells[cell] = start.getTile(cell);
+            }
+            long[] board = geometry.pack(cells);
+            numberOf(board[0], board[1]);
+        } else {
+            numberOf = null;
+        }
+    }
+
+    @Override
+    public long start() {
+        return wide ? 0 : start.key();
+    }
+
+    @Override
+    public boolean isGoal(long state) {
+        if (wide) {
+            return los[(int) state] == geometry.getGoalLo() && his[(int) state] == geometry.getGoalHi();
+        }
+        return state == geometry.getGoalLo();
+    }
+
+    @Override
+    public int h(long state) {
+        long lo = wide ? los[(int) state] : state;
+        long hi = wide ? his[(int) state] : 0;
+        int h = 0;
+        for (int cell = 0; cell < geometry.getSize(); cell++) {
+            h += geometry.manDist(geometry.get(lo, hi, cell), cell);
+        }
+        return h;
+    }
+
+    @Override
+    public void successors(long state, int h, Successors out) {
+        out.clear();
+        if (wide) {
+            long lo = los[(int) state];
+            long hi = his[(int) state];
+            int hole = geometry.holeOf(lo, hi);
+            for (int from : geometry.getMoves(hole)) {
+                int tile = geometry.get(lo, hi, from);
+                long childLo = geometry.withCellLo(geometry.withCellLo(lo, from, 0), hole, tile);
+                long childHi = geometry.withCellHi(geometry.withCellHi(hi, from, 0), hole, tile);
+                out.add(numberOf(childLo, childHi), 1,
+                        h + geometry.manDist(tile, hole) - geometry.manDist(tile, from));
+            }
+            return;
+        }
+        int hole = geometry.holeOf(state);
+        for (int from : geometry.getMoves(hole)) {
+            int tile = geometry.get(state, 0, from);
+            long child = geometry.slide(state, hole, from);
+            out.add(child, eight ? EightPuzzleState.findCost(child) : 1,
+                    h + geometry.manDist(tile, hole) - geometry.manDist(tile, from));
+        }
+    }
+
+    @Override
+    public State toState(long state) {
+        if (wide) {
+            return new SlidingTileState(geometry, los[(int) state], his[(int) state]);
+        }
+        return eight ? new EightPuzzleState(state) : new SlidingTileState(geometry, state, 0);
+    }
+
+    // the number of a 5x5 board, numbering it if it is new
+    private int numberOf(long lo, long hi) {
+        long key = geometry.key(lo, hi);
+        int number = numberOf.get(key, hi, -1);
+        if (number < 0) {
+            number = count++;
+            if (number == los.length) {
+                los = Arrays.copyOf(los, number * 2);
+                his = Arrays.copyOf(his, number * 2);
+            }
+            los[number] = lo;
+            his[number] = hi;
+            numberOf.put(key, hi, number);
+        }
+        return number;
+    }
+}
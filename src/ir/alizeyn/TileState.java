@@ -0,0 +1,37 @@
+package ir.alizeyn;
+
+/**
+ * A state of a sliding tile puzzle of any width. Lets the engines work on the
+ * 8puzzle and the larger boards alike: repeats are detected through key() and
+ * the heuristics are read without knowing the concrete board class.
+ */
+public interface TileState extends State {
+
+    // number of cells per row
+    int getWidth();
+
+    // primitive key identifying the board, see ClosedSet
+    long key();
+
+    // second word of the key, 0 up to 4x4: key() and keyHi() together tell
+    // any two boards apart, key() alone is only a hash
+    long keyHi();
+
+    // the tile on a cell of the board, 0 for the hole
+    int getTile(int cell);
+
+    // Manhattan distance h(n) value
+    int getManDist();
+
+    // tiles out of place h(n) value
+    int getOutOfPlace();
+
+    // the goal state of a puzzle of the same width
+    TileState goal();
+
+    // number of successors, one per tile next to the hole
+    int successorCount();
+
+    // the successor genSuccessors() returns at index i, made on its own
+    TileState genSuccessor(int i);
+}
@@ -0,0 +1,204 @@
+package ir.alizeyn;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * A fixed-size transposition table for the linear-memory searches, which
+ * otherwise meet the same boards through different paths again and again.
+ * For a board it keeps the fewest moves it was reached with, and a lower
+ * bound on its distance to the goal backed up from below it. A board reached
+ * again with more moves is a duplicate, and one whose bound takes it past the
+ * threshold is cut without expanding it.
+ * <p>
+ * The table is sized in megabytes once and never grows. An entry is a single
+ * long: the board goes through an invertible hash, whose high bits pick a
+ * bucket and whose low bits are kept as the tag, so the tag and the bucket
+ * give the board back exactly and a hit is never a different board. The
+ * fewest moves and the bound take the bits below the tag. Buckets hold two
+ * entries, the first kept for the board reached with the fewest moves, whose
+ * subtree is the largest, the second always replaced.
+ * <p>
+ * The entries are a plain long[], written with compare-and-set and read whole
+ * through a VarHandle, so threads searching from the same start may share a
+ * table without locks. The fewest
+ * moves only make sense for one start board, see {@link #prepare(long)}.
+ * Boards that do not fit a single word, 5x5 ones, are not supported, and
+ * IDA* and RBFS search those without a table.
+ */
+public class TranspositionTable {
+
+    /**
+     * Size used by ProblemSolver in megabytes, no table when not set.
+     */
+    public static final String SIZE_PROPERTY = "tt.mb";
+
+    /**
+     * Returned by probe() for a board not in the table.
+     */
+    public static final int MISSING = -1;
+
+    /**
+     * Largest number of moves and bound an entry holds, larger bounds are
+     * kept as this and boards reached with more moves are not kept.
+     */
+    public static final int MAX_VALUE = 127;
+
+    private static final int VALUE_BITS = 7;
+    private static final int DATA_BITS = 2 * VALUE_BITS;
+    private static final long DATA_MASK = (1L << DATA_BITS) - 1;
+
+    private static final VarHandle ENTRY = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] entries;
+    private final int shift;
+    private final long tagMask;
+
+    private boolean prepared;
+    private long start;
+
+    /**
+     * @param megabytes - the memory taken by the entries, rounded down to a
+     *                  power of two, at least 1
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("A transposition table takes at least 1MB, not " + megabytes);
+        }
+        // 2^17 longs to the megabyte, two longs to a bucket; with 2^16
+        // buckets or more the tag has at most 48 bits
+        int bucketBits = Math.min(29, 63 - Long.numberOfLeadingZeros(megabytes) + 16);
+        this.entries = new long[2 << bucketBits];
+        this.shift = 64 - bucketBits;
+        this.tagMask = (1L << shift) - 1;
+    }
+
+    /**
+     * @return the table sized by -Dtt.mb, null if it is not set
+     */
+    public static TranspositionTable fromProperties() {
+        Integer megabytes = Integer.getInteger(SIZE_PROPERTY);
+        return megabytes == null ? null : new TranspositionTable(megabytes);
+    }
+
+    /**
+     * Empties the table unless it already holds boards of searches from
+     * start. Searches call it before they begin.
+     *
+     * @param start - the packed start board
+     */
+    public synchronized void prepare(long start) {
+        if (!prepared || this.start != start) {
+            clear();
+            this.start = start;
+            prepared = true;
+        }
+    }
+
+    /**
+     * @return the entry of a packed board, to read with g() and bound(), or
+     * MISSING
+     */
+    public int probe(long board) {
+        long h = mix(board);
+        int slot = (int) (h >>> shift) << 1;
+        long tag = tagOf(h);
+        long e = (long) ENTRY.getOpaque(entries, slot);
+        if ((e & ~DATA_MASK) == tag) {
+            return (int) (e & DATA_MASK);
+        }
+        e = (long) ENTRY.getOpaque(entries, slot + 1);
+        if ((e & ~DATA_MASK) == tag) {
+            return (int) (e & DATA_MASK);
+        }
+        return MISSING;
+    }
+
+    /**
+     * Records that a board was reached with g moves and is at least bound
+     * moves from the goal. An entry already there keeps the fewer moves and
+     * the higher bound.
+     */
+    public void store(long board, int g, int bound) {
+        if (g > MAX_VALUE) {
+            return;
+        }
+        bound = Math.min(bound, MAX_VALUE);
+        long h = mix(board);
+        int slot = (int) (h >>> shift) << 1;
+        long tag = tagOf(h);
+        while (true) {
+            long first = (long) ENTRY.getOpaque(entries, slot);
+            long second = (long) ENTRY.getOpaque(entries, slot + 1);
+            int at;
+            long old;
+            long data;
+            if ((first & ~DATA_MASK) == tag || (second & ~DATA_MASK) == tag) {
+                at = (first & ~DATA_MASK) == tag ? slot : slot + 1;
+                old = at == slot ? first : second;
+                int known = (int) (old & DATA_MASK);
+                data = pack(Math.min(g, g(known)), Math.max(bound, bound(known)));
+                if ((old & DATA_MASK) == data) {
+                    return;
+                }
+            } else {
+                // replace by depth in the first entry, always in the second
+                at = first == 0 || g <= g((int) (first & DATA_MASK)) ? slot : slot + 1;
+                old = at == slot ? first : second;
+                data = pack(g, bound);
+            }
+            if (ENTRY.compareAndSet(entries, at, old, tag | data)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the fewest moves the board of an entry was reached with
+     */
+    public static int g(int entry) {
+        return entry >>> VALUE_BITS;
+    }
+
+    /**
+     * @return the lower bound on the distance to the goal of an entry
+     */
+    public static int bound(int entry) {
+        return entry & MAX_VALUE;
+    }
+
+    /**
+     * Empties the table, not to be called while searches use it.
+     */
+    public void clear() {
+        Arrays.fill(entries, 0);
+    }
+
+    /**
+     * @return the number of entries the table holds when full
+     */
+    public int capacity() {
+        return entries.length;
+    }
+
+    private static int pack(int g, int bound) {
+        return g << VALUE_BITS | bound;
+    }
+
+    // the tag plus one above the data, so that no entry is 0
+    private long tagOf(long h) {
+        return ((h & tagMask) + 1) << DATA_BITS;
+    }
+
+    /*
+     * A bijection on longs: odd multiplications and xor shifts can all be
+     * undone.
+     */
+    private static long mix(long board) {
+        long h = board * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 32);
+    }
+}
@@ -1,130 +1,120 @@
 package ir.alizeyn;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Stack;
 
+/**
+ * Defines a Uniform-Cost search to be performed on a qualifying puzzle. Nodes
+ * are expanded in order of g(n) from a {@link DialQueue}, step costs being
+ * small integers.
+ */
 public class UCSearch {
 
     /**
-     * Initialization function for 8puzzle A*Search
+     * Initialization function for 8puzzle UCSearch
      *
      * @param board - The starting state, represented as a linear array of length
      *              9 forming 3 meta-rows.
      */
-    public static void search(int[] board) {
-        SearchNode root = new SearchNode(new EightPuzzleState(board));
-        Queue<SearchNode> q = new LinkedList<SearchNode>();
-        q.add(root);
+    public static SearchResult search(int[] board) {
+        return search(board, DuplicateDetection.GRAPH);
+    }
+
+    /**
+     * Initialization function for 8puzzle UCSearch
+     *
+     * @param board - The starting state, represented as a linear array of length
+     *              9 forming 3 meta-rows.
+     * @param mode  - how repeated boards are detected
+     */
+    public static SearchResult search(int[] board, DuplicateDetection mode) {
+        return search(new EightPuzzleState(board), mode);
+    }
+
+    /**
+     * Initialization function for UCSearch on any puzzle
+     *
+     * @param start - The starting state
+     * @param mode  - how repeated boards are detected
+     */
+    public static SearchResult search(State start, DuplicateDetection mode) {
+        SearchStatistics stats = new SearchStatistics("UCS");
+        SearchNode root = new SearchNode(start);
+        DialQueue<SearchNode> q = new DialQueue<SearchNode>();
+
+        // GRAPH mode indexes the best g(n) per board, see AStarSearch
+        boolean graph = mode == DuplicateDetection.GRAPH;
+        LongIntHashMap bestG = new LongIntHashMap(1 << 16);
+        ClosedSet closed = new ClosedSet(mode);
+
+        if (graph) {
+            bestG.put(ClosedSet.keyOf(root.getCurState()), ClosedSet.keyHiOf(root.getCurState()), 0);
+        } else {
+            closed.isDuplicate(root);
+        }
+        q.push(root, 0);
+        stats.openSize(1);
 
         while (!q.isEmpty()) // while the queue is not empty
         {
-            SearchNode tempNode = q.poll();
+            SearchNode tempNode = q.pop();
+            int g = tempNode.getCost();
+
+            // skip nodes superseded by a cheaper path to the same board
+            if (graph && g > bestG.get(ClosedSet.keyOf(tempNode.getCurState()),
+                    ClosedSet.keyHiOf(tempNode.getCurState()), Integer.MAX_VALUE)) {
+                stats.duplicate();
+                continue;
+            }
 
             // if the tempNode is not the goal state
             if (!tempNode.getCurState().isGoal()) {
                 // generate tempNode's immediate successors
                 ArrayList<State> tempSuccessors = tempNode.getCurState()
                         .genSuccessors();
-                ArrayList<SearchNode> nodeSuccessors = new ArrayList<SearchNode>();
 
                 /*
-                 * Loop through the successors, wrap them in a SearchNode, check
-                 * if they've already been evaluated, and if not, add them to
-                 * the queue
+                 * Loop through the successors, wrap them in a SearchNode and
+                 * queue them under their g(n) unless they are repeats
                  */
                 for (int i = 0; i < tempSuccessors.size(); i++) {
-                    SearchNode checkedNode;
-                    // make the node
-                    checkedNode = new SearchNode(tempNode, tempSuccessors.get(i), tempNode.getCost() + tempSuccessors.get(i).findCost(), 0);
-
-
-                    // Check for repeats before adding the new node
-                    if (!checkRepeats(checkedNode)) {
-                        nodeSuccessors.add(checkedNode);
+                    State successor = tempSuccessors.get(i);
+                    int childG = g + (int) successor.findCost();
+                    stats.generated();
+
+                    if (graph) {
+                        long key = ClosedSet.keyOf(successor);
+                        long hi = ClosedSet.keyHiOf(successor);
+                        int known = bestG.get(key, hi, Integer.MAX_VALUE);
+                        if (known <= childG) {
+                            stats.duplicate();
+                            continue;
+                        }
+                        if (known != Integer.MAX_VALUE) {
+                            stats.reopened();
+                        }
+                        bestG.put(key, hi, childG);
                     }
-                }
-
-                // Check to see if nodeSuccessors is empty. If it is, continue
-                // the loop from the top
-                if (nodeSuccessors.size() == 0)
-                    continue;
 
-                SearchNode lowestNode = nodeSuccessors.get(0);
+                    SearchNode checkedNode = new SearchNode(tempNode, successor, childG, 0);
 
-                /*
-                 * This loop finds the lowest f(n) in a node, and then sets that
-                 * node as the lowest.
-                 */
-                for (int i = 0; i < nodeSuccessors.size(); i++) {
-                    if (lowestNode.getFCost() > nodeSuccessors.get(i)
-                            .getFCost()) {
-                        lowestNode = nodeSuccessors.get(i);
-                    }
-                }
-
-                int lowestValue = (int) lowestNode.getFCost();
-
-                // Adds any nodes that have that same lowest value.
-                for (int i = 0; i < nodeSuccessors.size(); i++) {
-                    if (nodeSuccessors.get(i).getFCost() == lowestValue) {
-                        q.add(nodeSuccessors.get(i));
+                    if (graph || !closed.isDuplicate(checkedNode)) {
+                        q.push(checkedNode, childG);
+                    } else {
+                        stats.duplicate();
                     }
                 }
+                stats.expanded();
+                stats.openSize(q.size());
+                stats.closedSize(graph ? bestG.size() : closed.size());
             } else
-            // The goal state has been found. Print the path it took to get to
-            // it.
+            // The goal state has been found, report the path it took to get
+            // to it.
             {
-                // Use a stack to track the path from the starting state to the
-                // goal state
-                Stack<SearchNode> solutionPath = new Stack<SearchNode>();
-                solutionPath.push(tempNode);
-                tempNode = tempNode.getParent();
-
-                while (tempNode.getParent() != null) {
-                    solutionPath.push(tempNode);
-                    tempNode = tempNode.getParent();
-                }
-                solutionPath.push(tempNode);
-
-                // The size of the stack before looping through and emptying it.
-                int loopSize = solutionPath.size();
-
-                for (int i = 0; i < loopSize; i++) {
-                    tempNode = solutionPath.pop();
-                    tempNode.getCurState().printState();
-                    System.out.println();
-                    System.out.println();
-                }
-                System.out.println("The cost was: " + tempNode.getCost());
-                System.exit(0);
-            }
-        }
-
-        // This should never happen with our current puzzles.
-        System.out.println("Error! No solution found!");
-
-    }
-
-    /*
-     * Helper method to check to see if a SearchNode has already been evaluated.
-     * Returns true if it has, false if it hasn't.
-     */
-    private static boolean checkRepeats(SearchNode n) {
-        boolean retValue = false;
-        SearchNode checkNode = n;
-
-        // While n's parent isn't null, check to see if it's equal to the node
-        // we're looking for.
-        while (n.getParent() != null && !retValue) {
-            if (n.getParent().getCurState().equals(checkNode.getCurState())) {
-                retValue = true;
+                return SearchResult.found(tempNode, true, stats);
             }
-            n = n.getParent();
         }
 
-        return retValue;
+        return SearchResult.notFound(stats);
     }
 
 }
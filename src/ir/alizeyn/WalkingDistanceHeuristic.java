@@ -0,0 +1,189 @@
+package ir.alizeyn;
+
+import java.util.Arrays;
+
+/**
+ * The walking distance (Takahashi). Looked at row by row, a board is
+ * reduced to how many tiles of every goal row each row holds, and where the
+ * hole is; a vertical move carries one tile to the hole's row from the row
+ * next to it. The fewest such moves from a board's reduction to the goal's is
+ * a lower bound on its vertical moves, and the same table read on the
+ * columns bounds the horizontal ones, h(n) being the sum of the two. It
+ * counts the tiles that get in each other's way across lines, and is most
+ * often well above the Manhattan distance plus linear conflicts.
+ * <p>
+ * The reductions are few, 24,964 for the 15puzzle, and a breadth-first
+ * search from the goal numbers them and records their distance and, for
+ * every reduction, which one each move leads to. The tracker holds the
+ * numbers of the row and column reductions of its board, and a move is one
+ * lookup in the transition table. The goal hole is in the bottom right
+ * corner, so rows and columns share one table. No table is built beyond
+ * 4x4.
+ */
+public class WalkingDistanceHeuristic implements Heuristic {
+
+    private static final WalkingDistanceHeuristic[] BY_WIDTH =
+            new WalkingDistanceHeuristic[PuzzleGeometry.MAX_WIDTH + 1];
+
+    private final int width;
+    // the number of every reduction by its code, see encode()
+    private final LongIntHashMap numberOf;
+    private final byte[] distance;
+    // at number * 2 * width + direction * width + goal line: the reduction
+    // reached when the hole moves up (0) or down (1) taking a tile of that
+    // goal line from the row it moves to, -1 if there is none
+    private final int[] next;
+
+    private WalkingDistanceHeuristic(int width) {
+        this.width = width;
+        this.numberOf = new LongIntHashMap(1 << 15);
+
+        // breadth-first over the codes from the goal
+        long[] codes = new long[1 << 10];
+        int[] counts = new int[width * width];
+        for (int line = 0; line < width; line++) {
+            counts[line * width + line] = line == width - 1 ? width - 1 : width;
+        }
+        codes[0] = encode(counts, width - 1);
+        numberOf.put(codes[0], 0);
+        byte[] dist = new byte[codes.length];
+        int[] moves = new int[codes.length * 2 * width];
+        int size = 1;
+        for (int n = 0; n < size; n++) {
+            int hole = decode(codes[n], counts);
+            for (int direction = 0; direction < 2; direction++) {
+                int row = direction == 0 ? hole - 1 : hole + 1;
+                for (int line = 0; line < width; line++) {
+                    int move = n * 2 * width + direction * width + line;
+                    if (row < 0 || row >= width || counts[row * width + line] == 0) {
+                        moves[move] = -1;
+                        continue;
+                    }
+                    counts[row * width + line]--;
+                    counts[hole * width + line]++;
+                    long code = encode(counts, row);
+                    counts[hole * width + line]--;
+                    counts[row * width + line]++;
+
+                    int number = numberOf.get(code, -1);
+                    if (number < 0) {
+                        if (size == codes.length) {
+                            codes = Arrays.copyOf(codes, size * 2);
+                            dist = Arrays.copyOf(dist, size * 2);
+                            moves = Arrays.copyOf(moves, size * 4 * width);
+                        }
+                        number = size++;
+                        codes[number] = code;
+                        dist[number] = (byte) (dist[n] + 1);
+                        numberOf.put(code, number);
+                    }
+                    moves[move] = number;
+                }
+            }
+        }
+        this.distance = Arrays.copyOf(dist, size);
+        this.next = Arrays.copyOf(moves, size * 2 * width);
+    }
+
+    /**
+     * @return the walking distance for boards of the given width, up to 4
+     */
+    public static synchronized WalkingDistanceHeuristic forWidth(int width) {
+        if (PuzzleGeometry.forWidth(width).getWidth() > 4) {
+            throw new IllegalArgumentException("No walking distance table for width " + width);
+        }
+        if (BY_WIDTH[width] == null) {
+            BY_WIDTH[width] = new WalkingDistanceHeuristic(width);
+        }
+        return BY_WIDTH[width];
+    }
+
+    @Override
+    public int h(TileState s) {
+        return distance[numberOf(s, true)] + distance[numberOf(s, false)];
+    }
+
+    @Override
+    public Tracker track(TileState start) {
+        final int startRows = numberOf(start, true);
+        final int startColumns = numberOf(start, false);
+        return new Tracker() {
+            private int rows = startRows;
+            private int columns = startColumns;
+
+            @Override
+            public int h() {
+                return distance[rows] + distance[columns];
+            }
+
+            @Override
+            public int move(int tile, int from, int to) {
+                int goal = tile - 1;
+                if (from / width != to / width) {
+                    push(rows << 1);
+                    rows = next[rows * 2 * width + (from < to ? 0 : 1) * width + goal / width];
+                } else {
+                    push(columns << 1 | 1);
+                    columns = next[columns * 2 * width + (from < to ? 0 : 1) * width + goal % width];
+                }
+                return distance[rows] + distance[columns];
+            }
+
+            @Override
+            public void undo() {
+                int saved = pop();
+                if ((saved & 1) == 0) {
+                    rows = saved >>> 1;
+                } else {
+                    columns = saved >>> 1;
+                }
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        return "walking-distance";
+    }
+
+    /*
+     * The number of the row reduction of s, or of its column reduction.
+     */
+    private int numberOf(TileState s, boolean rows) {
+        int[] counts = new int[width * width];
+        int hole = 0;
+        for (int cell = 0; cell < width * width; cell++) {
+            int tile = s.getTile(cell);
+            int line = rows ? cell / width : cell % width;
+            if (tile == 0) {
+                hole = line;
+            } else {
+                int goal = tile - 1;
+                counts[line * width + (rows ? goal / width : goal % width)]++;
+            }
+        }
+        return numberOf.get(encode(counts, hole), -1);
+    }
+
+    /*
+     * Three bits per count, row major, and the hole's line above them.
+     */
+    private long encode(int[] counts, int hole) {
+        long code = hole;
+        for (int count : counts) {
+            code = code << 3 | count;
+        }
+        return code;
+    }
+
+    /*
+     * Fills counts from a code and returns the hole's line.
+     */
+    private int decode(long code, int[] counts) {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            counts[i] = (int) (code & 7);
+            code >>>= 3;
+        }
+        return (int) code;
+    }
+}
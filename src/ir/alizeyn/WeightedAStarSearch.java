@@ -0,0 +1,115 @@
+package ir.alizeyn;
+
+import java.util.ArrayList;
+
+/**
+ * Defines a Weighted A* search for the sliding tile puzzles. The open list is
+ * ordered by f(n) = g(n) + w * h(n) with a weight w &gt;= 1, which trusts h(n)
+ * more than A* does: the search dives toward the goal and expands far fewer
+ * nodes, and with an admissible h(n) the solution costs at most w times the
+ * optimal. A weight of 1 is plain A*.
+ * <p>
+ * w * h(n) is rounded down, so f(n) stays an integer and the open list a
+ * {@link BucketQueue}; the rounded value still lies between h(n) and
+ * w * h(n), which is all the bound needs. The goal test is made when a node
+ * is expanded, and a board reached again by a cheaper path is queued again.
+ * g(n) counts moves, so on the 8puzzle, whose moves cost findCost(), no
+ * bound is reported.
+ */
+public class WeightedAStarSearch {
+
+    /**
+     * Weight used by ProblemSolver, overridable with -Dwa.weight.
+     */
+    public static final String WEIGHT_PROPERTY = "wa.weight";
+
+    public static final double DEFAULT_WEIGHT = 2.0;
+
+    /**
+     * Initialization function for 8puzzle Weighted A* with the Manhattan
+     * distance and the default weight
+     *
+     * @param board - The starting state, represented as a linear array of length
+     *              9 forming 3 meta-rows.
+     */
+    public static SearchResult search(int[] board) {
+        return search(new EightPuzzleState(board), null, DEFAULT_WEIGHT);
+    }
+
+    /**
+     * Initialization function for Weighted A* on any sliding tile puzzle
+     *
+     * @param start  - The starting state
+     * @param pdb    - pattern databases for the start's width, or null to use
+     *               the Manhattan distance
+     * @param weight - w, at least 1
+     */
+    public static SearchResult search(TileState start, AdditivePatternDatabase pdb, double weight) {
+        if (!(weight >= 1)) {
+            throw new IllegalArgumentException("Weight must be at least 1: " + weight);
+        }
+        SearchStatistics stats = new SearchStatistics("WA*");
+        BucketQueue<SearchNode> open = new BucketQueue<SearchNode>();
+        // best g(n) found so far for every board seen
+        LongIntHashMap bestG = new LongIntHashMap(1 << 16);
+
+        long t = stats.heuristicStart();
+        int rootH = h(start, pdb);
+        stats.heuristicDone(t);
+        open.push(new SearchNode(null, start, 0, rootH), weighted(0, rootH, weight), 0);
+        bestG.put(start.key(), start.keyHi(), 0);
+
+        while (!open.isEmpty()) {
+            SearchNode n = open.pop();
+            int g = n.getCost();
+            // skip nodes superseded by a cheaper path to the same board
+            if (g > bestG.get(ClosedSet.keyOf(n.getCurState()), ClosedSet.keyHiOf(n.getCurState()),
+                    Integer.MAX_VALUE)) {
+                stats.duplicate();
+                continue;
+            }
+            if (n.getCurState().isGoal()) {
+                return SearchResult.bounded(n, SearchResult.unitCost(start) ? weight : Double.POSITIVE_INFINITY, stats);
+            }
+
+            ArrayList<State> successors = n.getCurState().genSuccessors();
+            for (int i = 0; i < successors.size(); i++) {
+                TileState successor = (TileState) successors.get(i);
+                int childG = g + 1;
+                stats.generated();
+
+                long key = successor.key();
+                long hi = successor.keyHi();
+                int known = bestG.get(key, hi, Integer.MAX_VALUE);
+                if (known <= childG) {
+                    stats.duplicate();
+                    continue;
+                }
+                if (known != Integer.MAX_VALUE) {
+                    stats.reopened();
+                }
+                bestG.put(key, hi, childG);
+
+                t = stats.heuristicStart();
+                int h = h(successor, pdb);
+                stats.heuristicDone(t);
+                open.push(new SearchNode(n, successor, childG, h), weighted(childG, h, weight), childG);
+            }
+            stats.expanded();
+            stats.openSize(open.size());
+            stats.closedSize(bestG.size());
+        }
+        return SearchResult.notFound(stats);
+    }
+
+    /**
+     * @return g + w * h, rounded down
+     */
+    static int weighted(int g, int h, double weight) {
+        return g + (int) (weight * h);
+    }
+
+    private static int h(TileState s, AdditivePatternDatabase pdb) {
+        return pdb == null ? s.getManDist() : pdb.h(s);
+    }
+}